@@ -9,6 +9,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import jakarta.validation.Valid;
@@ -90,9 +91,14 @@ public class AuthController {
     }            
     
     @PostMapping("/logout")
-    public ResponseEntity<?> logout() {
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authHeader) {
         log.info("Logout attempt");
-        
+
+        // the token stops working on the server too, not only once the client drops it
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            authService.revokeToken(authHeader.substring(7));
+        }
+
         Map<String, Object> logoutResponse= new HashMap<>();
         logoutResponse.put("message", "Logged out successfully - please remove token from client");
 
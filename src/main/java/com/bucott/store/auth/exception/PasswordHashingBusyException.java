@@ -0,0 +1,14 @@
+package com.bucott.store.auth.exception;
+
+// Too many password hashes queued; the client should retry shortly
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+
+    public PasswordHashingBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
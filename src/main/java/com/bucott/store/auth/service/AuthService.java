@@ -18,6 +18,9 @@ public interface AuthService {
     UserInfoDTO getCurrentUser(String token);
     
     boolean validateToken(String token);
+
+    // refuses the token for the rest of its lifetime; false when it was not a valid token
+    boolean revokeToken(String token);
     
     UserInfoDTO getUserInfoByUsername(String username);
 }
\ No newline at end of file
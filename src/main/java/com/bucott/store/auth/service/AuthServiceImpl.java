@@ -16,14 +16,17 @@ import com.bucott.store.user.model.Role;
 import com.bucott.store.user.model.User;
 import com.bucott.store.user.repository.RoleRepository;
 import com.bucott.store.user.repository.UserRepository;
+import com.bucott.store.security.cache.VerifiedTokenCache;
+import com.bucott.store.security.password.PasswordHasher;
 import com.bucott.store.security.util.JwtUtil;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 @Service @AllArgsConstructor
 public class AuthServiceImpl implements AuthService {
     private static final Logger log = LoggerFactory.getLogger(AuthServiceImpl.class);
@@ -31,7 +34,8 @@ public class AuthServiceImpl implements AuthService {
     private final UserRepository userRepo;
     private final RoleRepository roleRepo;
     private final JwtUtil jwtUtil;
-    private final PasswordEncoder passwordEncoder;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final PasswordHasher passwordHasher;
     private final UserMapper userMapper;
     private final AddressMapper addressMapper;
 
@@ -41,11 +45,17 @@ public class AuthServiceImpl implements AuthService {
                 .orElseThrow(() -> new UserNotFoundException(
                         "User not found with username or email: " + requestDto.usernameOrEmail()));
 
-        if (!passwordEncoder.matches(requestDto.password(), user.getPassword())) {
+        if (!passwordHasher.matches(requestDto.password(), user.getPassword())) {
             throw new InvalidCredentialsException("Invalid password for user: " + requestDto.usernameOrEmail());
         }
+        // The password is at hand only now, so this is when a hash from an older cost is replaced
+        if (passwordHasher.needsRehash(user.getPassword())) {
+            user.setPassword(passwordHasher.encode(requestDto.password()));
+            userRepo.save(user);
+            log.info("Rehashed password for user: {}", user.getUsername());
+        }
 
-        String token = jwtUtil.generateToken(user.getUsername(), user.getEmail());
+        String token = jwtUtil.generateToken(user.getUsername(), user.getEmail(), roleNames(user));
 
         LoginResponseDTO response = new LoginResponseDTO(user.getUsername(), user.getEmail(), token);
         return response;
@@ -62,7 +72,7 @@ public class AuthServiceImpl implements AuthService {
         User user = userMapper.toEntity(requestDto);
         
         // Set encoded password
-        user.setPassword(passwordEncoder.encode(requestDto.password()));
+        user.setPassword(passwordHasher.encode(requestDto.password()));
         
         // Map address separately
         Address address = addressMapper.toEntity(requestDto.address());
@@ -77,7 +87,7 @@ public class AuthServiceImpl implements AuthService {
         log.info("User saved successfully with ID: {}, Username: {}", user.getId(), user.getUsername());
 
         // Generate token
-        String token = jwtUtil.generateToken(user.getUsername(), user.getEmail());
+        String token = jwtUtil.generateToken(user.getUsername(), user.getEmail(), roleNames(user));
 
        return new RegisterResponseDTO(
                         user.getUsername(),
@@ -124,6 +134,14 @@ public class AuthServiceImpl implements AuthService {
         return false;
     }
 
+    @Override
+    public boolean revokeToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return false;
+        }
+        return verifiedTokenCache.revoke(token);
+    }
+
     @Override
     public UserInfoDTO getUserInfoByUsername(String username) {
         try {
@@ -150,6 +168,12 @@ public class AuthServiceImpl implements AuthService {
     }
 
 
+    private static List<String> roleNames(User user) {
+        return user.getRoles().stream()
+                .map(role -> role.getAuthority().name())
+                .toList();
+    }
+
     private Role findOrCreateUserRole() {
         log.info("Looking for role: {}", Authority.ROLE_USER.name());
         Role userRole = roleRepo.findByAuthority(Authority.ROLE_USER);
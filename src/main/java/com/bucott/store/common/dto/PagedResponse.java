@@ -1,5 +1,6 @@
 package com.bucott.store.common.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Data;
 
@@ -16,6 +17,8 @@ public class PagedResponse<T> {
     private boolean first;
     private boolean last;
     private boolean empty;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor; // only set for cursor (keyset) pagination
     
     public static <T> PagedResponse<T> of(List<T> content, int page, int size, long totalElements, int totalPages) {
         return PagedResponse.<T>builder()
@@ -29,4 +32,17 @@ public class PagedResponse<T> {
                 .empty(content.isEmpty())
                 .build();
     }
+
+    public static <T> PagedResponse<T> ofCursor(List<T> content, int size, long totalElements, boolean first, String nextCursor) {
+        return PagedResponse.<T>builder()
+                .content(content)
+                .size(size)
+                .totalElements(totalElements)
+                .totalPages((int) ((totalElements + size - 1) / size))
+                .first(first)
+                .last(nextCursor == null)
+                .empty(content.isEmpty())
+                .nextCursor(nextCursor)
+                .build();
+    }
 }
\ No newline at end of file
@@ -7,8 +7,12 @@ import com.bucott.store.common.dto.ApiErrorResponse;
 import com.bucott.store.product.exception.InsufficientStockException;
 import com.bucott.store.product.exception.InvalidProductDataException;
 import com.bucott.store.product.exception.ProductNotFoundException;
+import com.bucott.store.product.exception.ProductVersionMismatchException;
+import com.bucott.store.product.exception.ReservationNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -16,13 +20,15 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import com.bucott.store.auth.exception.InvalidCredentialsException;
+import com.bucott.store.auth.exception.PasswordHashingBusyException;
 import com.bucott.store.user.exception.EmailNotFoundException;
 import com.bucott.store.user.exception.UserNotFoundException;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
-    @ExceptionHandler({EmailNotFoundException.class, UserNotFoundException.class, ProductNotFoundException.class})
+    @ExceptionHandler({EmailNotFoundException.class, UserNotFoundException.class, ProductNotFoundException.class,
+            ReservationNotFoundException.class})
     public ResponseEntity<ApiErrorResponse> handleNotFoundException(Exception ex, HttpServletRequest request) {
         ApiErrorResponse errorResponse = ApiErrorResponse.of(
                 HttpStatus.NOT_FOUND.value(),
@@ -55,6 +61,43 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler({ProductVersionMismatchException.class})
+    public ResponseEntity<ApiErrorResponse> handlePreconditionFailedException(Exception ex, HttpServletRequest request) {
+        ApiErrorResponse errorResponse = ApiErrorResponse.of(
+                HttpStatus.PRECONDITION_FAILED.value(),
+                "Precondition Failed",
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    // Another write to the same row committed between our read and our write
+    @ExceptionHandler({OptimisticLockingFailureException.class})
+    public ResponseEntity<ApiErrorResponse> handleConflictException(Exception ex, HttpServletRequest request) {
+        ApiErrorResponse errorResponse = ApiErrorResponse.of(
+                HttpStatus.CONFLICT.value(),
+                "Conflict",
+                "The resource was modified concurrently, fetch it again and retry",
+                request.getRequestURI()
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    // Password hashing is saturated; refuse quickly so callers back off instead of queueing
+    @ExceptionHandler({PasswordHashingBusyException.class})
+    public ResponseEntity<ApiErrorResponse> handleServiceUnavailableException(Exception ex, HttpServletRequest request) {
+        ApiErrorResponse errorResponse = ApiErrorResponse.of(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Service Unavailable",
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorResponse);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiErrorResponse> handleValidationException(MethodArgumentNotValidException ex, HttpServletRequest request) {
         List<ApiErrorResponse.ValidationError> validationErrors = ex.getBindingResult()
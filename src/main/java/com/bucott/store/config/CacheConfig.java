@@ -0,0 +1,102 @@
+package com.bucott.store.config;
+
+import com.bucott.store.product.cache.CachedResponse;
+import com.bucott.store.security.cache.VerifiedToken;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String PRODUCTS_CACHE = "products";
+    public static final String PRODUCT_RESPONSES_CACHE = "productResponses";
+    public static final String VERIFIED_TOKENS_CACHE = "verifiedTokens";
+    public static final String REVOKED_TOKENS_CACHE = "revokedTokens";
+    public static final String USER_DETAILS_CACHE = "userDetails";
+    public static final String USER_CHANGES_CACHE = "userChanges";
+
+    @Value("${app.cache.products.maximum-size:1000}")
+    private long productsMaximumSize;
+
+    @Value("${app.cache.products.ttl:PT10M}")
+    private Duration productsTtl;
+
+    @Value("${app.cache.product-responses.maximum-size:64MB}")
+    private DataSize productResponsesMaximumSize;
+
+    @Value("${app.cache.verified-tokens.maximum-size:10000}")
+    private long verifiedTokensMaximumSize;
+
+    @Value("${app.cache.user-details.maximum-size:10000}")
+    private long userDetailsMaximumSize;
+
+    // Entries are evicted when their user changes; the TTL only bounds writes that bypass JPA
+    @Value("${app.cache.user-details.ttl:PT30M}")
+    private Duration userDetailsTtl;
+
+    // At least the lifetime of a token: older tokens cannot predate a change that is still relevant
+    @Value("${app.cache.user-changes.ttl:PT24H}")
+    private Duration userChangesTtl;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Only explicitly registered caches exist, each with its own bounds; stats feed the actuator cache metrics
+        cacheManager.setCacheNames(List.of());
+        cacheManager.registerCustomCache(PRODUCTS_CACHE, Caffeine.newBuilder()
+                .maximumSize(productsMaximumSize)
+                .expireAfterWrite(productsTtl)
+                .recordStats()
+                .build());
+        // Encoded response bodies, bounded by their size in bytes rather than their number
+        cacheManager.registerCustomCache(PRODUCT_RESPONSES_CACHE, Caffeine.newBuilder()
+                .maximumWeight(productResponsesMaximumSize.toBytes())
+                .weigher((key, value) -> value instanceof CachedResponse response ? response.weight() : 1)
+                .recordStats()
+                .build());
+        // Tokens are held until they expire, and no longer
+        cacheManager.registerCustomCache(VERIFIED_TOKENS_CACHE, Caffeine.newBuilder()
+                .maximumSize(verifiedTokensMaximumSize)
+                .expireAfter(untilTokenExpiry())
+                .recordStats()
+                .build());
+        // Never size-bounded: evicting a revocation early would let its token back in
+        cacheManager.registerCustomCache(REVOKED_TOKENS_CACHE, Caffeine.newBuilder()
+                .expireAfter(untilTokenExpiry())
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(USER_DETAILS_CACHE, Caffeine.newBuilder()
+                .maximumSize(userDetailsMaximumSize)
+                .expireAfterWrite(userDetailsTtl)
+                .recordStats()
+                .build());
+        // When each user last changed; tokens issued before that are checked against the database.
+        // Never size-bounded either: evicting a change early would let a stale token skip that check
+        cacheManager.registerCustomCache(USER_CHANGES_CACHE, Caffeine.newBuilder()
+                .expireAfterWrite(userChangesTtl)
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+
+    private static Expiry<Object, Object> untilTokenExpiry() {
+        return Expiry.creating((key, value) -> value instanceof VerifiedToken token
+                ? maxOf(Duration.between(Instant.now(), token.expiresAt()), Duration.ZERO)
+                : Duration.ZERO);
+    }
+
+    private static Duration maxOf(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+}
@@ -0,0 +1,18 @@
+package com.bucott.store.product.cache;
+
+/**
+ * An encoded product response as it went out on the wire, with a gzip copy when the body was
+ * large enough to be worth compressing. Valid only while the catalog is at {@code catalogVersion}.
+ */
+public record CachedResponse(
+    long catalogVersion,
+    String contentType,
+    String eTag,
+    byte[] body,
+    byte[] gzippedBody // null when not compressed
+) {
+    // Approximate heap cost, used to bound the cache in bytes
+    public int weight() {
+        return 64 + body.length + (gzippedBody == null ? 0 : gzippedBody.length);
+    }
+}
@@ -0,0 +1,83 @@
+package com.bucott.store.product.cache;
+
+import com.bucott.store.config.CacheConfig;
+import com.bucott.store.product.event.ProductChangedEvent;
+import com.bucott.store.product.event.ProductStockChangedEvent;
+import com.bucott.store.product.event.ProductsImportedEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evicts a product from the product cache whenever it changes, and drops the encoded responses,
+ * any of which may list it. Runs after commit when the change was made inside a transaction, so a
+ * reader that loads after the eviction sees the new row. A load already under way is another matter:
+ * one through the cache's own loader completes before the eviction removes its entry, but one
+ * outside it must compare {@link #evictions()} before and after or it can cache the old row again.
+ * <p>
+ * Only then does it move the catalog version on: a reader that already sees the new version can
+ * no longer find the old product in the cache and store a response built from it under that version.
+ */
+@Component
+public class ProductCacheInvalidator {
+    private final Cache productsCache;
+    private final Cache responsesCache;
+    private final ProductCatalogVersion catalogVersion;
+    // Moves on before every eviction, so a load that raced one can tell
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ProductCacheInvalidator(CacheManager cacheManager, ProductCatalogVersion catalogVersion) {
+        this.productsCache = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+        this.responsesCache = cacheManager.getCache(CacheConfig.PRODUCT_RESPONSES_CACHE);
+        this.catalogVersion = catalogVersion;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        evictions.incrementAndGet();
+        productsCache.evict(event.productId());
+        responsesCache.clear();
+        catalogVersion.increment();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        evictAll(event.products());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductStockChanged(ProductStockChangedEvent event) {
+        evictAll(event.products());
+    }
+
+    /**
+     * Read before loading products outside the cache's own loader; if it has moved on by the time
+     * they are cached, an eviction may have missed them and they must be evicted again.
+     */
+    public long evictions() {
+        return evictions.get();
+    }
+
+    // One clear and one version step for the whole batch, however many products it holds
+    /**
+     * Drops every cached product and response and moves the catalog version on, for writes such as
+     * a category rename that change how any product reads. Call only once the write has committed.
+     */
+    public void evictEverything() {
+        evictions.incrementAndGet();
+        productsCache.clear();
+        responsesCache.clear();
+        catalogVersion.increment();
+    }
+
+    private void evictAll(List<ProductChangedEvent> products) {
+        evictions.incrementAndGet();
+        products.forEach(product -> productsCache.evict(product.productId()));
+        responsesCache.clear();
+        catalogVersion.increment();
+    }
+}
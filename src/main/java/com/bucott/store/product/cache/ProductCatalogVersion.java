@@ -0,0 +1,31 @@
+package com.bucott.store.product.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Catalog-wide change counter behind the weak ETags of product list and search responses. Every
+ * product or category write moves it on, so a list ETag stays valid exactly as long as nothing in
+ * the catalog changed. The epoch keeps tags handed out before a restart from matching afterwards.
+ * <p>
+ * Moved on by {@link ProductCacheInvalidator} once it has evicted the changed product, so a
+ * response built for the new version can never be made from the old cached product.
+ */
+@Component
+public class ProductCatalogVersion {
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLong version = new AtomicLong();
+
+    public void increment() {
+        version.incrementAndGet();
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    public String eTag() {
+        return "W/\"" + epoch + "-" + version.get() + "\"";
+    }
+}
@@ -0,0 +1,125 @@
+package com.bucott.store.product.cache;
+
+import com.bucott.store.product.model.ProductCategory;
+import com.bucott.store.product.repository.ProductCategoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resident copy of the product category table. Lookups read an immutable snapshot without
+ * locking; any category insert, update or delete drops the snapshot and the next lookup reloads it.
+ */
+@Component
+public class ProductCategoryDictionary {
+    private static final Logger log = LoggerFactory.getLogger(ProductCategoryDictionary.class);
+    private final ProductCategoryRepository productCategoryRepository;
+
+    private volatile Map<Long, String> namesById;
+
+    public ProductCategoryDictionary(ProductCategoryRepository productCategoryRepository) {
+        this.productCategoryRepository = productCategoryRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        snapshot();
+    }
+
+    public boolean contains(Long categoryId) {
+        return categoryId != null && snapshot().containsKey(categoryId);
+    }
+
+    public String nameOf(Long categoryId) {
+        return snapshot().get(categoryId);
+    }
+
+    public Set<String> namesOf(Collection<Long> categoryIds) {
+        Map<Long, String> names = snapshot();
+        Set<String> result = new LinkedHashSet<>();
+        for (Long categoryId : categoryIds) {
+            String name = names.get(categoryId);
+            if (name != null) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    public Map<Long, String> all() {
+        return snapshot();
+    }
+
+    /**
+     * Builds a detached category for an association. Unlike a JPA reference it can be hashed
+     * into a Set without triggering a select.
+     */
+    public ProductCategory toCategory(Long categoryId) {
+        ProductCategory category = new ProductCategory(nameOf(categoryId));
+        category.setProductCategoryId(categoryId);
+        return category;
+    }
+
+    /**
+     * Checks that every id names an existing category. Ids missing from the snapshot are looked up
+     * in one query, in case another node added them since the snapshot was taken; only when they
+     * all turn out to exist is the snapshot dropped, so unknown ids never cost a full reload.
+     */
+    public void requireAll(Long[] categoryIds) {
+        Set<Long> missing = new LinkedHashSet<>();
+        for (Long categoryId : categoryIds) {
+            if (categoryId == null) {
+                throw new IllegalArgumentException("Invalid category ID: null");
+            }
+            if (!contains(categoryId)) {
+                missing.add(categoryId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        Set<Long> found = new HashSet<>();
+        for (ProductCategory category : productCategoryRepository.findAllById(missing)) {
+            found.add(category.getProductCategoryId());
+        }
+        for (Long categoryId : missing) {
+            if (!found.contains(categoryId)) {
+                throw new IllegalArgumentException("Invalid category ID: " + categoryId);
+            }
+        }
+        log.info("Categories {} were added elsewhere, reloading the category dictionary", missing);
+        invalidate();
+    }
+
+    public void invalidate() {
+        namesById = null;
+    }
+
+    private Map<Long, String> snapshot() {
+        Map<Long, String> current = namesById;
+        if (current == null) {
+            synchronized (this) {
+                current = namesById;
+                if (current == null) {
+                    Map<Long, String> loaded = new HashMap<>();
+                    for (ProductCategory category : productCategoryRepository.findAll()) {
+                        loaded.put(category.getProductCategoryId(), category.getCategoryName());
+                    }
+                    current = Map.copyOf(loaded);
+                    namesById = current;
+                    log.info("Loaded {} product categories into the category dictionary", current.size());
+                }
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,55 @@
+package com.bucott.store.product.cache;
+
+import com.bucott.store.product.model.ProductCategory;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener (instantiated through Spring) that drops the category dictionary
+ * snapshot whenever a category is written, whichever code path wrote it. Category names are
+ * part of every product response, so the write also drops the cached products and responses and
+ * moves the catalog version on.
+ * <p>
+ * The JPA callbacks fire at flush, before commit; the work is deferred until the transaction has
+ * committed so a reader in between cannot reload the dictionary or re-cache a product from the old
+ * names, and a rolled-back write changes nothing.
+ */
+@Component
+public class ProductCategoryEntityListener {
+    // Resolved lazily: the listener is created while the EntityManagerFactory is still being built
+    private final ObjectProvider<ProductCategoryDictionary> categoryDictionary;
+    private final ObjectProvider<ProductCacheInvalidator> cacheInvalidator;
+
+    public ProductCategoryEntityListener(ObjectProvider<ProductCategoryDictionary> categoryDictionary,
+                                         ObjectProvider<ProductCacheInvalidator> cacheInvalidator) {
+        this.categoryDictionary = categoryDictionary;
+        this.cacheInvalidator = cacheInvalidator;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onCategoryChanged(ProductCategory category) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate();
+            }
+        });
+    }
+
+    // The dictionary goes first so nothing cached after the clear is built from the old names
+    private void invalidate() {
+        categoryDictionary.ifAvailable(ProductCategoryDictionary::invalidate);
+        cacheInvalidator.ifAvailable(ProductCacheInvalidator::evictEverything);
+    }
+}
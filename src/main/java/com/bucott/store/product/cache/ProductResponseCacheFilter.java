@@ -0,0 +1,134 @@
+package com.bucott.store.product.cache;
+
+import com.bucott.store.config.CacheConfig;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves hot product listing and product pages from their encoded bytes. The first request for a
+ * page runs the controller as usual and its response body is kept, gzipped too when large enough;
+ * later requests for the same normalized URL are written straight to the socket with no query,
+ * mapping or JSON serialization. Entries belong to one catalog version and stop being served as
+ * soon as any product or category changes.
+ */
+@Component
+public class ProductResponseCacheFilter extends OncePerRequestFilter {
+    // Listing, query, search and single product pages; export streams and is never cached
+    private static final Pattern CACHEABLE_PATH = Pattern.compile("/api/v1/products(/\\d+|/query|/search/.+)?");
+
+    private final Cache responsesCache;
+    private final ProductCatalogVersion catalogVersion;
+    private final boolean enabled;
+    private final int gzipMinSize;
+
+    public ProductResponseCacheFilter(CacheManager cacheManager, ProductCatalogVersion catalogVersion,
+                                      @Value("${app.products.response-cache.enabled:true}") boolean enabled,
+                                      @Value("${app.products.response-cache.gzip-min-size:1KB}") DataSize gzipMinSize) {
+        this.responsesCache = cacheManager.getCache(CacheConfig.PRODUCT_RESPONSES_CACHE);
+        this.catalogVersion = catalogVersion;
+        this.enabled = enabled;
+        this.gzipMinSize = (int) gzipMinSize.toBytes();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled
+                || !"GET".equals(request.getMethod())
+                || !CACHEABLE_PATH.matcher(request.getRequestURI()).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String key = cacheKey(request);
+        // Read before the page is built: a write landing meanwhile makes this entry stale, never wrong
+        long version = catalogVersion.current();
+
+        CachedResponse cached = responsesCache.get(key, CachedResponse.class);
+        if (cached != null && cached.catalogVersion() == version) {
+            if (!new ServletWebRequest(request, response).checkNotModified(cached.eTag())) {
+                write(cached, request, response);
+            }
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || wrapper.getContentSize() == 0
+                || version != catalogVersion.current()) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        byte[] body = wrapper.getContentAsByteArray();
+        CachedResponse entry = new CachedResponse(version, wrapper.getContentType(),
+                wrapper.getHeader(HttpHeaders.ETAG), body, body.length >= gzipMinSize ? gzip(body) : null);
+        responsesCache.put(key, entry);
+        // The buffered copy is dropped; the client gets the same bytes a later hit would
+        write(entry, request, response);
+    }
+
+    // Path plus parameters sorted by name, so the same page is one entry whatever order the client used
+    private static String cacheKey(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(request.getRequestURI());
+        char separator = '?';
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            for (String value : parameter.getValue()) {
+                key.append(separator).append(parameter.getKey()).append('=').append(value);
+                separator = '&';
+            }
+        }
+        return key.toString();
+    }
+
+    private static void write(CachedResponse cached, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        byte[] body = cached.body();
+        if (cached.gzippedBody() != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(request)) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                body = cached.gzippedBody();
+            }
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(cached.contentType());
+        if (cached.eTag() != null) {
+            response.setHeader(HttpHeaders.ETAG, cached.eTag());
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        }
+        return compressed.toByteArray();
+    }
+}
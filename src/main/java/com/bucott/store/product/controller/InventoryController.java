@@ -0,0 +1,56 @@
+package com.bucott.store.product.controller;
+
+import com.bucott.store.product.dto.StockDecrementRequestDTO;
+import com.bucott.store.product.dto.StockLevelDTO;
+import com.bucott.store.product.dto.StockReservationDTO;
+import com.bucott.store.product.dto.StockReservationRequestDTO;
+import com.bucott.store.product.service.InventoryService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/inventory")
+public class InventoryController {
+    private static final Logger log = LoggerFactory.getLogger(InventoryController.class);
+    private final InventoryService inventoryService;
+
+    public InventoryController(InventoryService inventoryService) {
+        this.inventoryService = inventoryService;
+    }
+
+    @GetMapping("/products/{productId}")
+    public ResponseEntity<StockLevelDTO> getStockLevel(@PathVariable Long productId) {
+        return ResponseEntity.ok(inventoryService.getStockLevel(productId));
+    }
+
+    // Takes stock without a reservation, e.g. for point-of-sale or back-office corrections
+    @PostMapping("/products/{productId}/decrement")
+    public ResponseEntity<StockLevelDTO> decrementStock(@PathVariable Long productId,
+                                                        @Valid @RequestBody StockDecrementRequestDTO request) {
+        log.info("Received request to decrement stock of product ID: {} by {}", productId, request.quantity());
+        return ResponseEntity.ok(inventoryService.decrementStock(productId, request.quantity()));
+    }
+
+    @PostMapping("/reservations")
+    public ResponseEntity<StockReservationDTO> reserveStock(@Valid @RequestBody StockReservationRequestDTO request) {
+        log.info("Received request to reserve stock: {}", request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(inventoryService.reserveStock(request));
+    }
+
+    @PostMapping("/reservations/{reservationId}/commit")
+    public ResponseEntity<StockReservationDTO> commitReservation(@PathVariable String reservationId) {
+        log.info("Received request to commit stock reservation: {}", reservationId);
+        return ResponseEntity.ok(inventoryService.commitReservation(reservationId));
+    }
+
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<Void> releaseReservation(@PathVariable String reservationId) {
+        log.info("Received request to release stock reservation: {}", reservationId);
+        inventoryService.releaseReservation(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+}
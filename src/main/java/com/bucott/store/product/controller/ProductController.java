@@ -1,29 +1,55 @@
 package com.bucott.store.product.controller;
 
 import com.bucott.store.common.dto.PagedResponse;
+import com.bucott.store.product.cache.ProductCatalogVersion;
+import com.bucott.store.product.dto.ProductBatchResponseDTO;
 import com.bucott.store.product.dto.ProductCreateUpdateRequestDTO;
 import com.bucott.store.product.dto.ProductCreateUpdateResponseDTO;
+import com.bucott.store.product.dto.ProductFileFormat;
+import com.bucott.store.product.dto.ProductImportResultDTO;
 import com.bucott.store.product.dto.ProductInfoDTO;
+import com.bucott.store.product.dto.ProductLowStockDTO;
+import com.bucott.store.product.dto.ProductPatchRequestDTO;
+import com.bucott.store.product.dto.ProductQuery;
+import com.bucott.store.product.dto.ProductQueryResponseDTO;
+import com.bucott.store.product.dto.ProductSuggestionDTO;
+import com.bucott.store.product.exception.ProductVersionMismatchException;
 import com.bucott.store.product.model.Product;
+import com.bucott.store.product.service.ProductExportService;
+import com.bucott.store.product.service.ProductImportService;
 import com.bucott.store.product.service.ProductService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/v1/products")
 public class ProductController {
     private static final Logger log = LoggerFactory.getLogger(ProductController.class);
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
+    private final ProductCatalogVersion catalogVersion;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductImportService productImportService,
+                             ProductExportService productExportService, ProductCatalogVersion catalogVersion) {
         this.productService = productService;
+        this.productImportService = productImportService;
+        this.productExportService = productExportService;
+        this.catalogVersion = catalogVersion;
     }
 
     @GetMapping
@@ -31,17 +57,41 @@ public class ProductController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "productId") String sortBy,
-            @RequestParam(defaultValue = "asc") String sortDir) {
-        log.info("Received request to fetch products with pagination: page={}, size={}, sortBy={}, sortDir={}", 
-                page, size, sortBy, sortDir);
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(defaultValue = "false") boolean keyset,
+            @RequestParam(required = false) String cursor,
+            WebRequest webRequest) {
+        log.info("Received request to fetch products with pagination: page={}, size={}, sortBy={}, sortDir={}, keyset={}, cursor={}", 
+                page, size, sortBy, sortDir, keyset, cursor);
         
-        PagedResponse<ProductInfoDTO> products = productService.getAllProducts(page, size, sortBy, sortDir);
-        return ResponseEntity.ok(products);
+        // A cursor implies keyset mode; keyset=true without a cursor starts from the first page
+        return ifCatalogModified(webRequest, () -> keyset || cursor != null
+                ? productService.getProductsByCursor(cursor, size, sortBy, sortDir)
+                : productService.getAllProducts(page, size, sortBy, sortDir));
     }
 
+    // The product comes from the product cache, so a 304 costs neither a query nor serialization
     @GetMapping("/{productId}")
-    public ResponseEntity<ProductInfoDTO> getProductById(@PathVariable Long productId) {
-        return ResponseEntity.ok(productService.getProductById(productId));
+    public ResponseEntity<ProductInfoDTO> getProductById(@PathVariable Long productId, WebRequest webRequest) {
+        ProductInfoDTO product = productService.getProductById(productId);
+        String eTag = eTag(product.version());
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(product);
+    }
+
+    @GetMapping("/batch")
+    public ResponseEntity<ProductBatchResponseDTO> getProductsByIds(@RequestParam List<Long> ids, WebRequest webRequest) {
+        log.info("Received request to fetch {} products by ID", ids.size());
+        return ifCatalogModified(webRequest, () -> productService.getProductsByIds(ids));
+    }
+
+    // POST variant for id lists too long for a query string
+    @PostMapping("/batch")
+    public ResponseEntity<ProductBatchResponseDTO> getProductsByIdsFromBody(@RequestBody List<Long> ids) {
+        log.info("Received request to fetch {} products by ID", ids.size());
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
     }
 
     //genetate test
@@ -51,11 +101,49 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.CREATED).body(productService.createProduct(product));
     }
 
+    // Bulk load: one ProductCreateUpdateRequestDTO per NDJSON line, or CSV with a header row
+    // (name,description,price,cost,currentStock,categoryIds) and categoryIds separated by ';';
+    // further CSV columns, such as those of an export, are ignored
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public ResponseEntity<ProductImportResultDTO> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        log.info("Received request to import products as {}", contentType);
+        return ResponseEntity.ok(productImportService.importProducts(body, ProductFileFormat.fromMediaType(contentType)));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "ndjson") String format) {
+        log.info("Received request to export products as {}", format);
+        ProductFileFormat fileFormat = ProductFileFormat.fromExtension(format);
+        StreamingResponseBody body = output -> productExportService.exportProducts(output, fileFormat);
+        return ResponseEntity.ok()
+                .contentType(fileFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products." + fileFormat.extension() + "\"")
+                .body(body);
+    }
+
     // generate tests
+    // With If-Match the update only applies to that version of the product, otherwise 412
     @PutMapping("/{productId}")
-    public ResponseEntity<ProductCreateUpdateResponseDTO> updateProduct(@PathVariable Long productId, @Valid @RequestBody ProductCreateUpdateRequestDTO product) {
-        log.info("Received request to update product with ID: {}", productId);
-        return ResponseEntity.ok(productService.updateProduct(productId, product));
+    public ResponseEntity<ProductCreateUpdateResponseDTO> updateProduct(
+            @PathVariable Long productId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody ProductCreateUpdateRequestDTO product) {
+        log.info("Received request to update product with ID: {}, If-Match: {}", productId, ifMatch);
+        ProductCreateUpdateResponseDTO updated = productService.updateProduct(productId, product, expectedVersion(productId, ifMatch));
+        return ResponseEntity.ok().eTag(eTag(updated.version())).body(updated);
+    }
+
+    // Partial update: only the fields present in the body are written. Honours If-Match like PUT.
+    @PatchMapping(value = "/{productId}", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/merge-patch+json"})
+    public ResponseEntity<ProductCreateUpdateResponseDTO> patchProduct(
+            @PathVariable Long productId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody ProductPatchRequestDTO patch) {
+        log.info("Received request to patch product with ID: {}, If-Match: {}", productId, ifMatch);
+        ProductCreateUpdateResponseDTO patched = productService.patchProduct(productId, patch, expectedVersion(productId, ifMatch));
+        return ResponseEntity.ok().eTag(eTag(patched.version())).body(patched);
     }
 
     //generate tests
@@ -66,57 +154,170 @@ public class ProductController {
         return ResponseEntity.noContent().build();
     }
 
+    // Composable filter over category, price bounds, stock state and text, answered by one paged statement.
+    // With facets=true the response also carries category, stock and price counts for building filters.
+    @GetMapping("/query")
+    public ResponseEntity<ProductQueryResponseDTO> queryProducts(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String description,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "productId") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(defaultValue = "false") boolean facets,
+            WebRequest webRequest) {
+        ProductQuery query = ProductQuery.builder()
+                .categoryId(categoryId)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .inStock(inStock)
+                .text(q)
+                .name(name)
+                .description(description)
+                .build();
+        log.info("Received request to query products: {}, page={}, size={}, sortBy={}, sortDir={}, facets={}",
+                query, page, size, sortBy, sortDir, facets);
+        return ifCatalogModified(webRequest, () -> new ProductQueryResponseDTO(
+                productService.queryProducts(query, page, size, sortBy, sortDir),
+                facets ? productService.getProductFacets(query) : null));
+    }
+
+    // Search box autocomplete: products with a name word starting with the prefix, best sellers first.
+    // Called on every keystroke, so it is answered from memory and logged at debug only.
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggestProducts(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        log.debug("Received request for product suggestions: prefix={}, limit={}", prefix, limit);
+        return ResponseEntity.ok(productService.suggestProducts(prefix, limit));
+    }
+
     // generate tests
     @GetMapping("/search/category/{categoryId}")
-    public ResponseEntity<List<ProductInfoDTO>> getProductsByCategory(@PathVariable Long categoryId) {
-        log.info("Received request to fetch products by category ID: {}", categoryId);
-        return ResponseEntity.ok(productService.getProductsByCategory(categoryId));
+    public ResponseEntity<PagedResponse<ProductInfoDTO>> getProductsByCategory(
+            @PathVariable Long categoryId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
+        log.info("Received request to fetch products by category ID: {}, page={}, size={}", categoryId, page, size);
+        return ifCatalogModified(webRequest, () -> productService.getProductsByCategory(categoryId, page, size));
     }
 
     // generate tests
     @GetMapping("/search/keyword/{keyword}")
-    public ResponseEntity<List<ProductInfoDTO>> searchProductsByKeyword(@PathVariable String keyword) {
-        log.info("Received request to search products by keyword: {}", keyword);
-        return ResponseEntity.ok(productService.searchProducts(keyword));
+    public ResponseEntity<PagedResponse<ProductInfoDTO>> searchProductsByKeyword(
+            @PathVariable String keyword,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
+        log.info("Received request to search products by keyword: {}, page={}, size={}", keyword, page, size);
+        return ifCatalogModified(webRequest, () -> productService.searchProducts(keyword, page, size));
     }
 
     // generate tests
     @GetMapping("/search/price-range")
-    public ResponseEntity<List<ProductInfoDTO>> getProductsByPriceRange(@RequestParam Double minPrice, @RequestParam Double maxPrice) {
-        log.info("Received request to fetch products by price range: {} - {}", minPrice, maxPrice);
-        return ResponseEntity.ok(productService.getProductsByPriceRange(
-            BigDecimal.valueOf(minPrice), BigDecimal.valueOf(maxPrice)));
+    public ResponseEntity<PagedResponse<ProductInfoDTO>> getProductsByPriceRange(
+            @RequestParam Double minPrice,
+            @RequestParam Double maxPrice,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
+        log.info("Received request to fetch products by price range: {} - {}, page={}, size={}", minPrice, maxPrice, page, size);
+        return ifCatalogModified(webRequest, () -> productService.getProductsByPriceRange(
+            BigDecimal.valueOf(minPrice), BigDecimal.valueOf(maxPrice), page, size));
     }
 
     // generate tests
     @GetMapping("/search/stock")
-    public ResponseEntity<List<ProductInfoDTO>> getProductsByStockAvailability(@RequestParam boolean inStock) {
-        log.info("Received request to fetch products by stock availability: {}", inStock);
-        return ResponseEntity.ok(productService.getProductsByStockAvailability(inStock));
+    public ResponseEntity<PagedResponse<ProductInfoDTO>> getProductsByStockAvailability(
+            @RequestParam boolean inStock,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
+        log.info("Received request to fetch products by stock availability: {}, page={}, size={}", inStock, page, size);
+        return ifCatalogModified(webRequest, () -> productService.getProductsByStockAvailability(inStock, page, size));
+    }
+
+    // Replenishment report: products at or below their low-stock threshold, lowest stock first
+    @GetMapping("/low-stock")
+    public ResponseEntity<PagedResponse<ProductLowStockDTO>> getLowStockReport(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
+        log.info("Received request for the low stock report: page={}, size={}", page, size);
+        return ifCatalogModified(webRequest, () -> productService.getLowStockReport(page, size));
     }
 
     // generate tests
     @GetMapping("/search/description/{description}")
-    public ResponseEntity<List<ProductInfoDTO>> searchProductsByDescription(@PathVariable String description) {
-        log.info("Received request to search products by description: {}", description);
-        return ResponseEntity.ok(productService.getProductsByDescription(description));
+    public ResponseEntity<PagedResponse<ProductInfoDTO>> searchProductsByDescription(
+            @PathVariable String description,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
+        log.info("Received request to search products by description: {}, page={}, size={}", description, page, size);
+        return ifCatalogModified(webRequest, () -> productService.getProductsByDescription(description, page, size));
     }
 
     // generate tests
     @GetMapping("/search/category-price-range")
-    public ResponseEntity<List<ProductInfoDTO>> getProductsByCategoryAndPriceRange(
+    public ResponseEntity<PagedResponse<ProductInfoDTO>> getProductsByCategoryAndPriceRange(
             @RequestParam Long categoryId, 
             @RequestParam Double minPrice, 
-            @RequestParam Double maxPrice) {
-        log.info("Received request to fetch products by category ID: {} and price range: {} - {}", categoryId, minPrice, maxPrice);
-        return ResponseEntity.ok(productService.getProductsByCategoryAndPriceRange(categoryId, minPrice, maxPrice));
+            @RequestParam Double maxPrice,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
+        log.info("Received request to fetch products by category ID: {} and price range: {} - {}, page={}, size={}", categoryId, minPrice, maxPrice, page, size);
+        return ifCatalogModified(webRequest, () -> productService.getProductsByCategoryAndPriceRange(categoryId, minPrice, maxPrice, page, size));
     }
 
     // generate tests
     @GetMapping("/search/name/{name}")
-    public ResponseEntity<List<ProductInfoDTO>> searchProductsByName(@PathVariable String name) {
-        log.info("Received request to search products by name: {}", name);
-        return ResponseEntity.ok(productService.getProductsByName(name));
+    public ResponseEntity<PagedResponse<ProductInfoDTO>> searchProductsByName(
+            @PathVariable String name,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
+        log.info("Received request to search products by name: {}, page={}, size={}", name, page, size);
+        return ifCatalogModified(webRequest, () -> productService.getProductsByName(name, page, size));
+    }
+
+    // Lists carry the weak catalog ETag. When If-None-Match still matches it, answer 304 before
+    // the body is queried, mapped or serialized.
+    private <T> ResponseEntity<T> ifCatalogModified(WebRequest webRequest, Supplier<T> body) {
+        String eTag = catalogVersion.eTag();
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(body.get());
+    }
+
+    // Strong ETag of a product version
+    private static String eTag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    // The version an If-Match header asks for, or null when any version will do (no header, or *).
+    // If-Match compares strongly, so a weak or malformed tag can never match.
+    private static Long expectedVersion(Long productId, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.valueOf(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // falls through to the mismatch below
+            }
+        }
+        throw new ProductVersionMismatchException(productId, ifMatch);
     }
 
     
@@ -0,0 +1,14 @@
+package com.bucott.store.product.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One product/category pair with the attributes the in-memory attribute index needs.
+ * Products without categories appear once with a null categoryId.
+ */
+public record ProductAttributeRow (
+    Long productId,
+    BigDecimal price,
+    int currentStock,
+    Long categoryId
+) { }
@@ -0,0 +1,8 @@
+package com.bucott.store.product.dto;
+
+import java.util.List;
+
+public record ProductBatchResponseDTO (
+    List<ProductInfoDTO> products, // in request order, duplicates removed
+    List<Long> missingIds
+) { }
@@ -12,5 +12,6 @@ public record ProductCreateUpdateResponseDTO (
     int currentStock,
     Long[] categoryIds,
     String createdAt,
-    String updatedAt
+    String updatedAt,
+    Long version
 ) { }
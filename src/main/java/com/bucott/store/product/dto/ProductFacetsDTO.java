@@ -0,0 +1,15 @@
+package com.bucott.store.product.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public record ProductFacetsDTO (
+    List<CategoryCount> categories, // counted without the category filter
+    long inStock, // stock counts ignore the stock filter
+    long outOfStock,
+    List<PriceBucket> priceHistogram // counted without the price bounds
+) {
+    public record CategoryCount(Long categoryId, String categoryName, long count) { }
+
+    public record PriceBucket(BigDecimal from, BigDecimal to, long count) { } // to is exclusive, null for the last bucket
+}
@@ -0,0 +1,56 @@
+package com.bucott.store.product.dto;
+
+import com.bucott.store.common.exception.InvalidInputException;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * Line-oriented formats used for bulk product import and export.
+ */
+public enum ProductFileFormat {
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+    CSV(new MediaType("text", "csv"), "csv");
+
+    /**
+     * The CSV columns the import reads, in order, with categoryIds separated by ';'. Exports
+     * start with the same columns, so an exported file can be imported as it is.
+     */
+    public static final List<String> CSV_COLUMNS = List.of("name", "description", "price", "cost", "currentStock", "categoryIds");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ProductFileFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    /** @throws InvalidInputException if the content type is neither NDJSON nor CSV */
+    public static ProductFileFormat fromMediaType(MediaType contentType) {
+        for (ProductFileFormat format : values()) {
+            if (contentType != null && contentType.isCompatibleWith(format.mediaType)) {
+                return format;
+            }
+        }
+        throw new InvalidInputException("Unsupported product file format: " + contentType);
+    }
+
+    /** @throws InvalidInputException if the extension is neither ndjson nor csv */
+    public static ProductFileFormat fromExtension(String extension) {
+        for (ProductFileFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(extension)) {
+                return format;
+            }
+        }
+        throw new InvalidInputException("Unsupported product file format: " + extension);
+    }
+}
@@ -0,0 +1,15 @@
+package com.bucott.store.product.dto;
+
+import java.util.List;
+
+public record ProductImportResultDTO (
+    long totalRows,
+    long imported,
+    long failed,
+    List<RowError> errors // capped, see failed for the full count
+) {
+    public record RowError(
+        long line,
+        String message
+    ) { }
+}
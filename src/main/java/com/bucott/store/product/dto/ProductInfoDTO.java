@@ -16,5 +16,6 @@ public record ProductInfoDTO (
     int currentStock,
     LocalDateTime createdAt,
     LocalDateTime updatedAt,
+    Long version, // the product's ETag; send it back in If-Match to update only this version
     Set<String> categoryNames // Category names instead of full objects for cleaner response
 ) { }
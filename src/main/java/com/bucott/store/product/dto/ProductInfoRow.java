@@ -0,0 +1,24 @@
+package com.bucott.store.product.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection row selected straight from the product tables. Category names are
+ * aggregated by the query into a single string joined with {@link #CATEGORY_SEPARATOR}.
+ */
+public record ProductInfoRow (
+    Long productId,
+    String name,
+    String description,
+    BigDecimal price,
+    BigDecimal cost,
+    int currentStock,
+    LocalDateTime createdAt,
+    LocalDateTime updatedAt,
+    Long version,
+    String categoryNames
+) {
+    // ASCII unit separator, which cannot appear in a category name typed by a user
+    public static final String CATEGORY_SEPARATOR = "\u001f";
+}
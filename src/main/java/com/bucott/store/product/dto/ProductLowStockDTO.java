@@ -0,0 +1,12 @@
+package com.bucott.store.product.dto;
+
+import java.util.Set;
+
+public record ProductLowStockDTO (
+    Long productId,
+    String name,
+    int currentStock,
+    int threshold, // the product counts as low on stock at or below this level
+    int shortfall, // units needed to get back above the threshold
+    Set<String> categoryNames
+) { }
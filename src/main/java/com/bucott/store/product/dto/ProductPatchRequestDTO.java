@@ -0,0 +1,32 @@
+package com.bucott.store.product.dto;
+
+import jakarta.validation.constraints.*;
+import java.math.BigDecimal;
+
+// Every field is optional; a null field is left as it is
+public record ProductPatchRequestDTO(
+    @Size(min = 5, max = 50, message = "Product name must be between 5 and 50 characters")
+    @Pattern(regexp = ".*\\S.*", message = "Product name must not be blank")
+    String name,
+
+    @Size(min = 10, max = 500, message = "Product description must be between 10 and 500 characters")
+    @Pattern(regexp = "(?s).*\\S.*", message = "Product description must not be blank")
+    String description,
+
+    @DecimalMin(value = "0.01", message = "Price must be greater than 0")
+    @DecimalMax(value = "999999.99", message = "Price must not exceed $999,999.99")
+    @Digits(integer = 6, fraction = 2, message = "Price must have at most 6 digits before decimal and 2 after")
+    BigDecimal price,
+
+    @DecimalMin(value = "0.01", message = "Cost must be greater than 0")
+    @DecimalMax(value = "999999.99", message = "Cost must not exceed $999,999.99")
+    @Digits(integer = 6, fraction = 2, message = "Cost must have at most 6 digits before decimal and 2 after")
+    BigDecimal cost,
+
+    @Min(value = 0, message = "Stock cannot be negative")
+    @Max(value = 999999, message = "Stock cannot exceed 999,999")
+    Integer currentStock,
+
+    @Size(min = 1, max = 5, message = "Product must have between 1 and 5 categories")
+    Long[] categoryIds
+) { }
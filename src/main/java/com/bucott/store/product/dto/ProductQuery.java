@@ -0,0 +1,19 @@
+package com.bucott.store.product.dto;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+
+/**
+ * Filters for the composable product query. Every field is optional; null means "no constraint".
+ */
+@Builder
+public record ProductQuery (
+    Long categoryId,
+    BigDecimal minPrice,
+    BigDecimal maxPrice,
+    Boolean inStock,
+    String text, // matched against name or description
+    String name,
+    String description
+) { }
@@ -0,0 +1,11 @@
+package com.bucott.store.product.dto;
+
+import com.bucott.store.common.dto.PagedResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+// Serialized as the page itself plus a "facets" field when facets were requested
+public record ProductQueryResponseDTO (
+    @JsonUnwrapped PagedResponse<ProductInfoDTO> page,
+    @JsonInclude(JsonInclude.Include.NON_NULL) ProductFacetsDTO facets
+) { }
@@ -0,0 +1,11 @@
+package com.bucott.store.product.dto;
+
+/**
+ * A product's stock as stored, with the row version it was read at. Stock writes bump the
+ * version, so of two rows for the same product the higher version is the more recent.
+ */
+public record ProductStockRow (
+    Long productId,
+    int currentStock,
+    long version
+) { }
@@ -0,0 +1,6 @@
+package com.bucott.store.product.dto;
+
+public record ProductSuggestionDTO (
+    Long productId,
+    String name
+) { }
@@ -0,0 +1,8 @@
+package com.bucott.store.product.dto;
+
+import jakarta.validation.constraints.Positive;
+
+public record StockDecrementRequestDTO (
+    @Positive(message = "Quantity must be greater than 0")
+    int quantity
+) { }
@@ -0,0 +1,8 @@
+package com.bucott.store.product.dto;
+
+public record StockLevelDTO (
+    Long productId,
+    int onHand, // current stock including commits not yet written to the product
+    int reserved,
+    int available // onHand - reserved
+) { }
@@ -0,0 +1,10 @@
+package com.bucott.store.product.dto;
+
+import java.time.Instant;
+
+public record StockReservationDTO (
+    String reservationId,
+    Long productId,
+    int quantity,
+    Instant expiresAt // released automatically unless committed before then
+) { }
@@ -0,0 +1,12 @@
+package com.bucott.store.product.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+public record StockReservationRequestDTO (
+    @NotNull(message = "Product ID is required")
+    Long productId,
+
+    @Positive(message = "Quantity must be greater than 0")
+    int quantity
+) { }
@@ -0,0 +1,36 @@
+package com.bucott.store.product.event;
+
+import com.bucott.store.product.dto.ProductInfoDTO;
+
+import java.util.Set;
+
+/**
+ * Published by the product service after a product has been created, updated or deleted.
+ * In-memory product structures listen for it to stay in sync with the database.
+ */
+public record ProductChangedEvent(
+    Type type,
+    Long productId,
+    ProductInfoDTO product, // null when the product was deleted
+    Set<Long> categoryIds // empty when the product was deleted
+) {
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    public static ProductChangedEvent created(ProductInfoDTO product, Set<Long> categoryIds) {
+        return new ProductChangedEvent(Type.CREATED, product.productId(), product, categoryIds);
+    }
+
+    public static ProductChangedEvent updated(ProductInfoDTO product, Set<Long> categoryIds) {
+        return new ProductChangedEvent(Type.UPDATED, product.productId(), product, categoryIds);
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(Type.DELETED, productId, null, Set.of());
+    }
+
+    public boolean isDeletion() {
+        return type == Type.DELETED;
+    }
+}
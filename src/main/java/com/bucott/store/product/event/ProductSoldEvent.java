@@ -0,0 +1,7 @@
+package com.bucott.store.product.event;
+
+/**
+ * Published by the inventory engine when units of a product are sold, through a committed
+ * reservation or a direct decrement.
+ */
+public record ProductSoldEvent(Long productId, int quantity) { }
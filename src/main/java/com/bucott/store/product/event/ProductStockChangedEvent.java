@@ -0,0 +1,12 @@
+package com.bucott.store.product.event;
+
+import java.util.List;
+
+/**
+ * Published by the inventory engine once per flush, and once per batch of direct decrements,
+ * for the products whose stock it wrote. Only stock and version differ from what listeners
+ * already hold, so structures built on names and descriptions need not re-index anything.
+ */
+public record ProductStockChangedEvent(
+    List<ProductChangedEvent> products // one UPDATED event per product, with its stock as written
+) { }
@@ -0,0 +1,11 @@
+package com.bucott.store.product.event;
+
+import java.util.List;
+
+/**
+ * Published by the product import once per committed chunk, in place of a {@link ProductChangedEvent}
+ * per row, so in-memory product structures take in the whole chunk at once.
+ */
+public record ProductsImportedEvent(
+    List<ProductChangedEvent> products // one CREATED event per imported product
+) { }
@@ -0,0 +1,16 @@
+package com.bucott.store.product.exception;
+
+/**
+ * Exception thrown when a conditional update names a product version that is no longer current
+ */
+public class ProductVersionMismatchException extends RuntimeException {
+
+    public ProductVersionMismatchException(Long productId, Long expectedVersion, Long currentVersion) {
+        super(String.format("Product with ID %d is at version %d, not the expected version %d",
+                productId, currentVersion, expectedVersion));
+    }
+
+    public ProductVersionMismatchException(Long productId, String ifMatch) {
+        super(String.format("Product with ID %d does not match If-Match %s", productId, ifMatch));
+    }
+}
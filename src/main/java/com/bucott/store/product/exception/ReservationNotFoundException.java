@@ -0,0 +1,11 @@
+package com.bucott.store.product.exception;
+
+/**
+ * Exception thrown when a stock reservation does not exist, has expired or was already settled
+ */
+public class ReservationNotFoundException extends RuntimeException {
+
+    public ReservationNotFoundException(String reservationId) {
+        super(String.format("Stock reservation %s not found or already released", reservationId));
+    }
+}
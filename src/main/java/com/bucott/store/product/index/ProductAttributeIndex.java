@@ -0,0 +1,394 @@
+package com.bucott.store.product.index;
+
+import com.bucott.store.product.dto.ProductAttributeRow;
+import com.bucott.store.product.event.ProductChangedEvent;
+import com.bucott.store.product.event.ProductStockChangedEvent;
+import com.bucott.store.product.event.ProductsImportedEvent;
+import com.bucott.store.product.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index over product prices, categories and stock. Prices are kept as long cents in a
+ * sorted primitive array and every category (and the in-stock set) is a bitset over positions in
+ * that array, so a category and price range query is a binary search for the range plus a walk over
+ * the category's bits inside it, and facet counts are bitset intersections.
+ * <p>
+ * Readers never lock: they see an immutable snapshot plus the small set of writes made since it
+ * was built. Once that delta reaches the merge threshold a fresh snapshot is built from all entries.
+ */
+@Component
+public class ProductAttributeIndex {
+    private static final Logger log = LoggerFactory.getLogger(ProductAttributeIndex.class);
+
+    // Products without a price sort first and only match queries without price bounds
+    private static final long NO_PRICE = Long.MIN_VALUE;
+    // Prices beyond these cannot be held in cents; they are clamped, which keeps range bounds right
+    private static final BigDecimal MIN_CENTS = BigDecimal.valueOf(NO_PRICE + 1);
+    private static final BigDecimal MAX_CENTS = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    private static final Comparator<Entry> PRICE_ORDER = Comparator.comparingLong(Entry::priceCents)
+            .thenComparingLong(Entry::productId);
+
+    private final ProductRepository productRepository;
+    private final int mergeThreshold;
+
+    // Every indexed product, the source for merges; guarded by this
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private volatile State state = State.EMPTY;
+    private volatile boolean ready;
+
+    public ProductAttributeIndex(ProductRepository productRepository,
+                                 @Value("${app.products.index.merge-threshold:256}") int mergeThreshold) {
+        this.productRepository = productRepository;
+        this.mergeThreshold = mergeThreshold;
+    }
+
+    private record Entry(long productId, long priceCents, int stock, Set<Long> categoryIds) {
+        boolean inStock() {
+            return stock > 0;
+        }
+    }
+
+    /**
+     * Products ordered by price then id. Each category's members and the in-stock products are
+     * bits over those positions.
+     */
+    private record Snapshot(long[] priceCents, long[] productIds, Map<Long, Integer> positionsById,
+                            Map<Long, BitSet> categoryPositions, BitSet inStock) {
+        static final Snapshot EMPTY = new Snapshot(new long[0], new long[0], Map.of(), Map.of(), new BitSet());
+    }
+
+    /**
+     * Facet counts over a matching set. Every facet ignores its own filter, so the counts show
+     * what selecting another category, stock state or price bucket would return.
+     */
+    public record Facets(Map<Long, Long> categoryCounts, long inStock, long outOfStock, long[] priceBucketCounts) { }
+
+    /** A snapshot plus the products written since; changed ids are hidden in the snapshot. */
+    private record State(Snapshot snapshot, List<Entry> upserts, Set<Long> changedIds) {
+        static final State EMPTY = new State(Snapshot.EMPTY, List.of(), Set.of());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        entries.clear();
+        for (ProductAttributeRow row : productRepository.findAllAttributes()) {
+            Entry entry = entries.computeIfAbsent(row.productId(),
+                    id -> new Entry(id, toCents(row.price(), RoundingMode.HALF_UP), row.currentStock(), new HashSet<>()));
+            if (row.categoryId() != null) {
+                entry.categoryIds().add(row.categoryId());
+            }
+        }
+        state = new State(build(), List.of(), Set.of());
+        ready = true;
+        log.info("Indexed prices, categories and stock of {} products", entries.size());
+    }
+
+    // After commit, so filters and facets only ever reflect committed rows
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        apply(List.of(event));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductsImported(ProductsImportedEvent event) {
+        apply(event.products());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductStockChanged(ProductStockChangedEvent event) {
+        apply(event.products());
+    }
+
+    // Publishes all the changes as one new state; guarded by this
+    private void apply(List<ProductChangedEvent> events) {
+        // The new entry of every changed product, null for a deleted one
+        Map<Long, Entry> changed = new HashMap<>();
+        for (ProductChangedEvent event : events) {
+            Long productId = event.productId();
+            Entry entry = null;
+            if (event.isDeletion()) {
+                entries.remove(productId);
+            } else {
+                entry = new Entry(productId, toCents(event.product().price(), RoundingMode.HALF_UP),
+                        event.product().currentStock(), Set.copyOf(event.categoryIds()));
+                entries.put(productId, entry);
+            }
+            changed.put(productId, entry);
+        }
+
+        State current = state;
+        Set<Long> changedIds = new HashSet<>(current.changedIds());
+        changedIds.addAll(changed.keySet());
+        if (changedIds.size() >= mergeThreshold) {
+            state = new State(build(), List.of(), Set.of());
+            return;
+        }
+        List<Entry> upserts = new ArrayList<>(current.upserts().size() + changed.size());
+        for (Entry upsert : current.upserts()) {
+            if (!changed.containsKey(upsert.productId())) {
+                upserts.add(upsert);
+            }
+        }
+        for (Entry entry : changed.values()) {
+            if (entry != null) {
+                upserts.add(entry);
+            }
+        }
+        upserts.sort(PRICE_ORDER);
+        state = new State(current.snapshot(), List.copyOf(upserts), Set.copyOf(changedIds));
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Ids of the products in the category (any category when null) priced within the inclusive
+     * cent bounds (unbounded when null), ordered by price and then id.
+     */
+    public long[] findIds(Long categoryId, Long minCents, Long maxCents) {
+        State current = state;
+        Snapshot snapshot = current.snapshot();
+        long low = lowBound(minCents, maxCents);
+        long high = highBound(maxCents);
+        int from = firstAtLeast(snapshot.priceCents(), low);
+        int to = firstAbove(snapshot.priceCents(), high);
+
+        // Positions in the snapshot that match, already in price order
+        int[] positions = new int[Math.max(0, to - from)];
+        int matched = 0;
+        Set<Long> changedIds = current.changedIds();
+        if (categoryId == null) {
+            for (int i = from; i < to; i++) {
+                if (changedIds.isEmpty() || !changedIds.contains(snapshot.productIds()[i])) {
+                    positions[matched++] = i;
+                }
+            }
+        } else {
+            BitSet members = snapshot.categoryPositions().get(categoryId);
+            if (members != null) {
+                for (int i = members.nextSetBit(from); i >= 0 && i < to; i = members.nextSetBit(i + 1)) {
+                    if (changedIds.isEmpty() || !changedIds.contains(snapshot.productIds()[i])) {
+                        positions[matched++] = i;
+                    }
+                }
+            }
+        }
+
+        List<Entry> pending = new ArrayList<>();
+        for (Entry upsert : current.upserts()) {
+            if (upsert.priceCents() >= low && upsert.priceCents() <= high
+                    && (categoryId == null || upsert.categoryIds().contains(categoryId))) {
+                pending.add(upsert);
+            }
+        }
+
+        // Merge the two price-ordered runs
+        long[] ids = new long[matched + pending.size()];
+        int i = 0, j = 0, k = 0;
+        while (i < matched || j < pending.size()) {
+            boolean takeSnapshot = j == pending.size() || (i < matched && comparePosition(snapshot, positions[i], pending.get(j)) < 0);
+            ids[k++] = takeSnapshot ? snapshot.productIds()[positions[i++]] : pending.get(j++).productId();
+        }
+        return ids;
+    }
+
+    /**
+     * Counts categories, stock states and price buckets over the candidates (all products when
+     * null) that pass the given filters. Bucket i spans [bounds[i], bounds[i + 1]) and the last
+     * bucket is open-ended.
+     */
+    public Facets facets(Set<Long> candidateIds, Long categoryId, Long minCents, Long maxCents, Boolean inStock,
+                         long[] bucketBoundsCents) {
+        State current = state;
+        Snapshot snapshot = current.snapshot();
+        int size = snapshot.productIds().length;
+
+        BitSet candidates = new BitSet(size);
+        if (candidateIds == null) {
+            candidates.set(0, size);
+        } else {
+            for (Long productId : candidateIds) {
+                Integer position = snapshot.positionsById().get(productId);
+                if (position != null) {
+                    candidates.set(position);
+                }
+            }
+        }
+        for (Long productId : current.changedIds()) {
+            Integer position = snapshot.positionsById().get(productId);
+            if (position != null) {
+                candidates.clear(position);
+            }
+        }
+
+        // One mask per filter; a null mask means the filter is not set
+        BitSet categoryMask = categoryId == null ? null
+                : snapshot.categoryPositions().getOrDefault(categoryId, new BitSet());
+        long low = lowBound(minCents, maxCents);
+        long high = highBound(maxCents);
+        BitSet priceMask = null;
+        if (minCents != null || maxCents != null) {
+            priceMask = new BitSet(size);
+            // Rounding both bounds inwards can leave an empty range, with low above high
+            int priceFrom = firstAtLeast(snapshot.priceCents(), low);
+            priceMask.set(priceFrom, Math.max(priceFrom, firstAbove(snapshot.priceCents(), high)));
+        }
+        BitSet stockMask = null;
+        if (inStock != null) {
+            stockMask = (BitSet) snapshot.inStock().clone();
+            if (!inStock) {
+                stockMask.flip(0, size);
+            }
+        }
+
+        Map<Long, Long> categoryCounts = new HashMap<>();
+        BitSet forCategories = intersect(candidates, priceMask, stockMask);
+        for (Map.Entry<Long, BitSet> category : snapshot.categoryPositions().entrySet()) {
+            BitSet members = (BitSet) category.getValue().clone();
+            members.and(forCategories);
+            categoryCounts.put(category.getKey(), (long) members.cardinality());
+        }
+
+        BitSet forStock = intersect(candidates, categoryMask, priceMask);
+        BitSet stocked = (BitSet) forStock.clone();
+        stocked.and(snapshot.inStock());
+        long inStockCount = stocked.cardinality();
+        long outOfStockCount = forStock.cardinality() - inStockCount;
+
+        // Positions are in price order, so each bucket is a contiguous range of positions
+        long[] bucketCounts = new long[bucketBoundsCents.length];
+        BitSet forPrices = intersect(candidates, categoryMask, stockMask);
+        for (int i = 0; i < bucketBoundsCents.length; i++) {
+            int bucketFrom = firstAtLeast(snapshot.priceCents(), bucketBoundsCents[i]);
+            int bucketTo = i + 1 < bucketBoundsCents.length ? firstAtLeast(snapshot.priceCents(), bucketBoundsCents[i + 1]) : size;
+            bucketCounts[i] = forPrices.get(bucketFrom, bucketTo).cardinality();
+        }
+
+        // Products written since the snapshot are counted one by one
+        for (Entry upsert : current.upserts()) {
+            if (candidateIds != null && !candidateIds.contains(upsert.productId())) {
+                continue;
+            }
+            boolean categoryMatches = categoryId == null || upsert.categoryIds().contains(categoryId);
+            boolean priceMatches = upsert.priceCents() >= low && upsert.priceCents() <= high;
+            boolean stockMatches = inStock == null || upsert.inStock() == inStock;
+            if (priceMatches && stockMatches) {
+                upsert.categoryIds().forEach(id -> categoryCounts.merge(id, 1L, Long::sum));
+            }
+            if (categoryMatches && priceMatches) {
+                if (upsert.inStock()) {
+                    inStockCount++;
+                } else {
+                    outOfStockCount++;
+                }
+            }
+            if (categoryMatches && stockMatches) {
+                int bucket = Arrays.binarySearch(bucketBoundsCents, upsert.priceCents());
+                bucket = bucket >= 0 ? bucket : -bucket - 2;
+                if (bucket >= 0) {
+                    bucketCounts[bucket]++;
+                }
+            }
+        }
+        return new Facets(categoryCounts, inStockCount, outOfStockCount, bucketCounts);
+    }
+
+    public static long toCents(BigDecimal price, RoundingMode roundingMode) {
+        if (price == null) {
+            return NO_PRICE;
+        }
+        // Only ever expanded into digits once within range, so a huge exponent costs nothing
+        BigDecimal cents = price.scaleByPowerOfTen(2).max(MIN_CENTS).min(MAX_CENTS);
+        if (cents.precision() - cents.scale() < 0) {
+            // Under a tenth of a cent: rounds exactly like any other such value of the same sign
+            cents = BigDecimal.valueOf(cents.signum(), 2);
+        }
+        return cents.setScale(0, roundingMode).max(MIN_CENTS).min(MAX_CENTS).longValueExact();
+    }
+
+    private Snapshot build() {
+        Entry[] sorted = entries.values().toArray(Entry[]::new);
+        Arrays.sort(sorted, PRICE_ORDER);
+        long[] prices = new long[sorted.length];
+        long[] ids = new long[sorted.length];
+        Map<Long, Integer> positionsById = new HashMap<>();
+        Map<Long, BitSet> categoryPositions = new HashMap<>();
+        BitSet inStock = new BitSet(sorted.length);
+        for (int i = 0; i < sorted.length; i++) {
+            prices[i] = sorted[i].priceCents();
+            ids[i] = sorted[i].productId();
+            positionsById.put(ids[i], i);
+            inStock.set(i, sorted[i].inStock());
+            for (Long categoryId : sorted[i].categoryIds()) {
+                categoryPositions.computeIfAbsent(categoryId, id -> new BitSet(sorted.length)).set(i);
+            }
+        }
+        return new Snapshot(prices, ids, positionsById, Map.copyOf(categoryPositions), inStock);
+    }
+
+    private static BitSet intersect(BitSet base, BitSet... masks) {
+        BitSet result = (BitSet) base.clone();
+        for (BitSet mask : masks) {
+            if (mask != null) {
+                result.and(mask);
+            }
+        }
+        return result;
+    }
+
+    // Without any price bound every product matches, including those without a price
+    private static long lowBound(Long minCents, Long maxCents) {
+        if (minCents != null) {
+            return minCents;
+        }
+        return maxCents != null ? NO_PRICE + 1 : NO_PRICE;
+    }
+
+    private static long highBound(Long maxCents) {
+        return maxCents != null ? maxCents : Long.MAX_VALUE;
+    }
+
+    private static int firstAbove(long[] sorted, long value) {
+        return value == Long.MAX_VALUE ? sorted.length : firstAtLeast(sorted, value + 1);
+    }
+
+    private static int comparePosition(Snapshot snapshot, int position, Entry entry) {
+        int byPrice = Long.compare(snapshot.priceCents()[position], entry.priceCents());
+        return byPrice != 0 ? byPrice : Long.compare(snapshot.productIds()[position], entry.productId());
+    }
+
+    private static int firstAtLeast(long[] sorted, long value) {
+        int low = 0, high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
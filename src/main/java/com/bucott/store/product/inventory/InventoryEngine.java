@@ -0,0 +1,346 @@
+package com.bucott.store.product.inventory;
+
+import com.bucott.store.product.dto.ProductAttributeRow;
+import com.bucott.store.product.dto.ProductInfoRow;
+import com.bucott.store.product.dto.ProductStockRow;
+import com.bucott.store.product.event.ProductChangedEvent;
+import com.bucott.store.product.event.ProductSoldEvent;
+import com.bucott.store.product.event.ProductStockChangedEvent;
+import com.bucott.store.product.event.ProductsImportedEvent;
+import com.bucott.store.product.exception.InsufficientStockException;
+import com.bucott.store.product.exception.ProductNotFoundException;
+import com.bucott.store.product.exception.ReservationNotFoundException;
+import com.bucott.store.product.mapper.ProductMapper;
+import com.bucott.store.product.model.StockMovement;
+import com.bucott.store.product.repository.ProductRepository;
+import com.bucott.store.product.repository.StockMovementRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Holds product stock in per-product lock-free counters. Reservations, releases and commits
+ * are compare-and-set operations on those counters; a commit appends a row to the stock movement
+ * ledger and the product rows are brought up to date by a periodic write-behind flush.
+ * <p>
+ * The ledger makes the write-behind crash safe: on startup any movements left over from a previous
+ * run are applied before the counters are loaded. Reservations live only in memory and are simply
+ * gone after a restart, which returns their stock.
+ */
+@Component
+public class InventoryEngine {
+    private static final Logger log = LoggerFactory.getLogger(InventoryEngine.class);
+
+    private final ProductRepository productRepository;
+    private final StockMovementRepository stockMovementRepository;
+    private final ProductMapper productMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration reservationTtl;
+    private final int flushBatchSize;
+    private final int decrementMaxAttempts;
+
+    private final Map<Long, StockCounter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+    // Commits written to the ledger since the last flush; lets an idle flush skip the database
+    private final AtomicInteger pendingMovements = new AtomicInteger();
+    // Products decremented in place since the last flush, whose views still show the old stock
+    private final Set<Long> decrementedProducts = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+
+    public InventoryEngine(ProductRepository productRepository, StockMovementRepository stockMovementRepository,
+                           ProductMapper productMapper, ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.inventory.reservation-ttl:PT15M}") Duration reservationTtl,
+                           @Value("${app.inventory.flush-batch-size:1000}") int flushBatchSize,
+                           @Value("${app.inventory.decrement-max-attempts:3}") int decrementMaxAttempts) {
+        this.productRepository = productRepository;
+        this.stockMovementRepository = stockMovementRepository;
+        this.productMapper = productMapper;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reservationTtl = reservationTtl;
+        this.flushBatchSize = flushBatchSize;
+        this.decrementMaxAttempts = decrementMaxAttempts;
+    }
+
+    public record Reservation(String reservationId, Long productId, int quantity, Instant expiresAt) { }
+
+    // The rows as the flush left them, read inside its transaction while it still holds their locks
+    private record FlushResult(Map<Long, Integer> deltas, Map<Long, ProductStockRow> rows, int applied) { }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        // Reconcile first: movements committed before a crash are still in the ledger
+        int reconciled = 0;
+        for (int applied = flush(); applied > 0; applied = flush()) {
+            reconciled += applied;
+        }
+        counters.clear();
+        for (ProductAttributeRow row : productRepository.findAllAttributes()) {
+            counters.computeIfAbsent(row.productId(), id -> new StockCounter(row.currentStock()));
+        }
+        ready = true;
+        log.info("Loaded stock counters for {} products, reconciled {} stock movements", counters.size(), reconciled);
+    }
+
+    // After commit: a snapshot from a write that rolls back would leave the counter at a version never committed
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isDeletion()) {
+            counters.remove(event.productId());
+            return;
+        }
+        int stock = event.product().currentStock();
+        // Without a version there is no telling whether the snapshot predates writes already counted
+        long version = event.product().version() != null ? event.product().version() : -1;
+        StockCounter counter = counters.putIfAbsent(event.productId(), new StockCounter(stock, version));
+        if (counter != null) {
+            counter.rebase(stock, version);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        event.products().forEach(this::onProductChanged);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Reservation reserve(Long productId, int quantity) {
+        StockCounter counter = counter(productId);
+        if (!counter.tryReserve(quantity)) {
+            throw new InsufficientStockException(productId, quantity, Math.max(0, counter.available()));
+        }
+        Reservation reservation = new Reservation(UUID.randomUUID().toString(), productId, quantity,
+                Instant.now().plus(reservationTtl));
+        reservations.put(reservation.reservationId(), reservation);
+        return reservation;
+    }
+
+    public Reservation release(String reservationId) {
+        Reservation reservation = claim(reservationId);
+        StockCounter counter = counters.get(reservation.productId());
+        if (counter != null) {
+            counter.release(reservation.quantity());
+        }
+        return reservation;
+    }
+
+    public Reservation commit(String reservationId) {
+        Reservation reservation = claim(reservationId);
+        try {
+            stockMovementRepository.save(new StockMovement(reservation.productId(), -reservation.quantity(), reservationId));
+        } catch (RuntimeException e) {
+            // Not durable, so not sold: keep the reservation for a retry or release
+            reservations.put(reservationId, reservation);
+            throw e;
+        }
+        pendingMovements.incrementAndGet();
+        StockCounter counter = counters.get(reservation.productId());
+        if (counter != null) {
+            counter.commit(reservation.quantity());
+        }
+        eventPublisher.publishEvent(new ProductSoldEvent(reservation.productId(), reservation.quantity()));
+        return reservation;
+    }
+
+    /**
+     * Sells stock straight from the product row, for callers without a reservation. The counter is
+     * reserved first so in-memory reservations are honoured, then a single conditional UPDATE takes
+     * the stock only if the row still has enough. The database check is the last word: a counter
+     * that is briefly ahead of the row can never push the stock below zero. Caches and views catch
+     * up on the next flush, as they do for committed reservations.
+     */
+    public void decrement(Long productId, int quantity) {
+        StockCounter counter = counter(productId);
+        if (!counter.tryReserve(quantity)) {
+            throw new InsufficientStockException(productId, quantity, Math.max(0, counter.available()));
+        }
+        ProductStockRow row;
+        try {
+            row = decrementWithRetry(productId, quantity);
+        } catch (RuntimeException e) {
+            counter.release(quantity);
+            throw e;
+        }
+        if (row == null) {
+            counter.release(quantity);
+            throw new InsufficientStockException(productId, quantity, Math.max(0, counter.available()));
+        }
+        counter.commitPersisted(quantity, row.currentStock(), row.version());
+        decrementedProducts.add(productId);
+        eventPublisher.publishEvent(new ProductSoldEvent(productId, quantity));
+    }
+
+    public StockCounter counter(Long productId) {
+        StockCounter counter = counters.get(productId);
+        if (counter == null) {
+            throw new ProductNotFoundException(productId);
+        }
+        return counter;
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.flush-interval-ms:1000}")
+    public void flushPending() {
+        while (pendingMovements.get() > 0 && flush() > 0) {
+            // keep going until the ledger has caught up
+        }
+        if (!decrementedProducts.isEmpty()) {
+            Set<Long> productIds = new HashSet<>();
+            for (Iterator<Long> iterator = decrementedProducts.iterator(); iterator.hasNext(); ) {
+                productIds.add(iterator.next());
+                iterator.remove();
+            }
+            publishStockChanges(productIds);
+        }
+    }
+
+    /**
+     * Applies the oldest ledger movements to the product rows in one transaction and deletes them
+     * in the same transaction. Returns the number of movements applied.
+     */
+    public synchronized int flush() {
+        FlushResult result = transactionTemplate.execute(status -> {
+            List<StockMovement> movements = stockMovementRepository.findByOrderByMovementIdAsc(Limit.of(flushBatchSize));
+            Map<Long, Integer> deltas = new HashMap<>();
+            for (StockMovement movement : movements) {
+                deltas.merge(movement.getProductId(), movement.getQuantity(), Integer::sum);
+            }
+            if (!deltas.isEmpty()) {
+                warnAboutClamping(deltas);
+            }
+            deltas.forEach(productRepository::adjustStock);
+            stockMovementRepository.deleteAllInBatch(movements);
+            Map<Long, ProductStockRow> rows = new HashMap<>();
+            if (!deltas.isEmpty()) {
+                productRepository.findStockByIdIn(deltas.keySet()).forEach(row -> rows.put(row.productId(), row));
+            }
+            return new FlushResult(deltas, rows, movements.size());
+        });
+
+        if (result.applied() == 0) {
+            return 0;
+        }
+        pendingMovements.updateAndGet(pending -> Math.max(0, pending - result.applied()));
+        Map<Long, Integer> deltas = result.deltas();
+        deltas.forEach((productId, delta) -> {
+            StockCounter counter = counters.get(productId);
+            ProductStockRow row = result.rows().get(productId);
+            if (counter != null && row != null) {
+                counter.flushed(delta, row.currentStock(), row.version());
+            }
+        });
+        publishStockChanges(deltas.keySet());
+        log.info("Flushed {} stock movements for {} products", result.applied(), deltas.size());
+        return result.applied();
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.expiry-check-interval-ms:5000}")
+    public void releaseExpiredReservations() {
+        Instant now = Instant.now();
+        int released = 0;
+        for (Reservation reservation : reservations.values()) {
+            if (reservation.expiresAt().isBefore(now) && reservations.remove(reservation.reservationId(), reservation)) {
+                StockCounter counter = counters.get(reservation.productId());
+                if (counter != null) {
+                    counter.release(reservation.quantity());
+                }
+                released++;
+            }
+        }
+        if (released > 0) {
+            log.info("Released {} expired stock reservations", released);
+        }
+    }
+
+    /**
+     * Returns the row as the decrement left it, read in the same transaction while it is still
+     * locked, or null if the row had too little stock. The statement is safe to repeat, so a lock
+     * timeout or deadlock is retried a bounded number of times.
+     */
+    private ProductStockRow decrementWithRetry(Long productId, int quantity) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> productRepository.decrementStock(productId, quantity) == 1
+                        ? productRepository.findStockByIdIn(List.of(productId)).get(0)
+                        : null);
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= decrementMaxAttempts) {
+                    log.error("Giving up on decrementing stock of product ID {} after {} attempts", productId, attempt);
+                    throw e;
+                }
+                log.warn("Stock decrement of product ID {} hit lock contention, retrying (attempt {})", productId, attempt);
+                // jittered backoff so the retrying writers do not collide again
+                LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(1_000_000L * attempt, 5_000_000L * attempt));
+            }
+        }
+    }
+
+    /**
+     * The flush clamps stock at zero. It only has to when an absolute stock write, such as a
+     * recount through PUT or PATCH, replaced the row while sales were still in the ledger; those
+     * sales then exceed the stock the write set, and are logged so the recount can be checked.
+     */
+    private void warnAboutClamping(Map<Long, Integer> deltas) {
+        for (ProductStockRow row : productRepository.findStockByIdIn(deltas.keySet())) {
+            int delta = deltas.get(row.productId());
+            if (row.currentStock() + delta < 0) {
+                log.warn("Stock of product ID {} is {} but {} sold units are being flushed; clamping it at 0",
+                        row.productId(), row.currentStock(), -delta);
+            }
+        }
+    }
+
+    private Reservation claim(String reservationId) {
+        Reservation reservation = reservationId == null ? null : reservations.remove(reservationId);
+        if (reservation == null) {
+            throw new ReservationNotFoundException(reservationId);
+        }
+        return reservation;
+    }
+
+    // Lets caches, indexes and stock views pick up the flushed stock levels, all in one event
+    private void publishStockChanges(Set<Long> productIds) {
+        Map<Long, Set<Long>> categoryIds = new HashMap<>();
+        for (ProductAttributeRow row : productRepository.findAttributesByIdIn(productIds)) {
+            Set<Long> ids = categoryIds.computeIfAbsent(row.productId(), id -> new HashSet<>());
+            if (row.categoryId() != null) {
+                ids.add(row.categoryId());
+            }
+        }
+        List<ProductChangedEvent> products = productRepository.findInfoByIdIn(productIds).stream()
+                .map(row -> ProductChangedEvent.updated(productMapper.toInfoDTO(row),
+                        categoryIds.getOrDefault(row.productId(), Set.of())))
+                .toList();
+        if (!products.isEmpty()) {
+            eventPublisher.publishEvent(new ProductStockChangedEvent(products));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.bucott.store.product.inventory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free stock counter for one product. On-hand and reserved quantities share a single
+ * {@link AtomicLong} (on-hand in the high 32 bits, reserved in the low 32), so a reservation
+ * checks and claims availability in one compare-and-set and can never oversell.
+ * <p>
+ * On-hand is always the last product row seen plus the commits not yet flushed to it. The
+ * operations that move either term hold the counter's lock and recompute on-hand from both, so
+ * none of them can undo another; reservations and releases stay lock-free. A row snapshot is
+ * applied only if its version is newer than the last one applied, so a snapshot read before a
+ * write can never put that write's stock back.
+ */
+public final class StockCounter {
+    private final AtomicLong state;
+    // Guarded by this: the product row as last seen, and committed quantities not yet written
+    // to it (negative for stock that left)
+    private int persisted;
+    private long persistedVersion;
+    private int unflushed;
+
+    public StockCounter(int onHand) {
+        this(onHand, -1);
+    }
+
+    public StockCounter(int persistedStock, long persistedVersion) {
+        this.state = new AtomicLong(pack(persistedStock, 0));
+        this.persisted = persistedStock;
+        this.persistedVersion = persistedVersion;
+    }
+
+    public boolean tryReserve(int quantity) {
+        while (true) {
+            long current = state.get();
+            int onHand = onHand(current);
+            int reserved = reserved(current);
+            if (onHand - reserved < quantity) {
+                return false;
+            }
+            if (state.compareAndSet(current, pack(onHand, reserved + quantity))) {
+                return true;
+            }
+        }
+    }
+
+    public void release(int quantity) {
+        state.getAndUpdate(current -> pack(onHand(current), reserved(current) - quantity));
+    }
+
+    /** Turns a reservation into a sale that the flush will write to the product row. */
+    public synchronized void commit(int quantity) {
+        unflushed -= quantity;
+        settle(quantity);
+    }
+
+    /**
+     * Turns a reservation into a sale that the caller has already written to the product row,
+     * which it left at {@code persistedStock} with {@code version}.
+     */
+    public synchronized void commitPersisted(int quantity, int persistedStock, long version) {
+        see(persistedStock, version);
+        settle(quantity);
+    }
+
+    /**
+     * Records that a flush wrote {@code delta} of the committed quantities to the product row,
+     * which it left at {@code persistedStock} with {@code version}.
+     */
+    public synchronized void flushed(int delta, int persistedStock, long version) {
+        unflushed -= delta;
+        see(persistedStock, version);
+        settle(0);
+    }
+
+    /** Resets on-hand from a product row snapshot, keeping reservations and unflushed commits. */
+    public synchronized void rebase(int persistedStock, long version) {
+        see(persistedStock, version);
+        settle(0);
+    }
+
+    public int onHand() {
+        return onHand(state.get());
+    }
+
+    public int reserved() {
+        return reserved(state.get());
+    }
+
+    public int available() {
+        long current = state.get();
+        return onHand(current) - reserved(current);
+    }
+
+    public synchronized int unflushed() {
+        return unflushed;
+    }
+
+    private void see(int persistedStock, long version) {
+        if (version > persistedVersion) {
+            persisted = persistedStock;
+            persistedVersion = version;
+        }
+    }
+
+    // Publishes on-hand from the guarded terms, turning reservations into sales on the way
+    private void settle(int sold) {
+        int onHand = persisted + unflushed;
+        state.getAndUpdate(current -> pack(onHand, reserved(current) - sold));
+    }
+
+    private static long pack(int onHand, int reserved) {
+        return ((long) onHand << 32) | (reserved & 0xFFFFFFFFL);
+    }
+
+    private static int onHand(long state) {
+        return (int) (state >> 32);
+    }
+
+    private static int reserved(long state) {
+        return (int) state;
+    }
+}
@@ -1,44 +1,71 @@
 package com.bucott.store.product.mapper;
 
+import com.bucott.store.product.cache.ProductCategoryDictionary;
 import com.bucott.store.product.dto.ProductCreateUpdateRequestDTO;
 import com.bucott.store.product.dto.ProductCreateUpdateResponseDTO;
 import com.bucott.store.product.dto.ProductInfoDTO;
+import com.bucott.store.product.dto.ProductInfoRow;
 import com.bucott.store.product.model.Product;
 import com.bucott.store.product.model.ProductCategory;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
+import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Arrays;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Mapper(componentModel = "spring")
-public interface ProductMapper {
+public abstract class ProductMapper {
+
+    @Autowired
+    protected ProductCategoryDictionary categoryDictionary;
 
     @Mapping(target = "productId", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "version", ignore = true)
     @Mapping(target = "categories", ignore = true) // Categories will be handled separately
-    Product toEntity(ProductCreateUpdateRequestDTO dto);
+    public abstract Product toEntity(ProductCreateUpdateRequestDTO dto);
 
     @Mapping(target = "categoryIds", source = "categories", qualifiedByName = "categoriesToIds")
-    ProductCreateUpdateResponseDTO toCreateUpdateResponseDTO(Product product);
+    public abstract ProductCreateUpdateResponseDTO toCreateUpdateResponseDTO(Product product);
 
     @Mapping(target = "categoryNames", source = "categories", qualifiedByName = "categoriesToNames")
-    ProductInfoDTO toInfoDTO(Product product);
+    public abstract ProductInfoDTO toInfoDTO(Product product);
+
+    @Mapping(target = "categoryNames", source = "categoryNames", qualifiedByName = "joinedToNames")
+    public abstract ProductInfoDTO toInfoDTO(ProductInfoRow row);
+
+    @Named("joinedToNames")
+    protected Set<String> joinedToNames(String categoryNames) {
+        if (categoryNames == null || categoryNames.isEmpty()) {
+            return Set.of();
+        }
+        return Arrays.stream(categoryNames.split(ProductInfoRow.CATEGORY_SEPARATOR))
+                .collect(Collectors.toSet());
+    }
 
+    // Names come from the category dictionary by id, so category references (proxies) are never initialized
     @Named("categoriesToNames")
-    default Set<String> categoriesToNames(Set<ProductCategory> categories) {
+    protected Set<String> categoriesToNames(Set<ProductCategory> categories) {
         if (categories == null) {
             return null;
         }
-        return categories.stream()
-                .map(ProductCategory::getCategoryName)
+        return categoryDictionary.namesOf(categories.stream()
+                .map(ProductCategory::getProductCategoryId)
+                .toList());
+    }
+
+    public Set<Long> toCategoryIds(Product product) {
+        return product.getCategories().stream()
+                .map(ProductCategory::getProductCategoryId)
                 .collect(Collectors.toSet());
     }
 
     @Named("categoriesToIds")
-    default Long[] categoriesToIds(Set<ProductCategory> categories) {
+    protected Long[] categoriesToIds(Set<ProductCategory> categories) {
         if (categories == null) {
             return null;
         }
@@ -46,4 +73,4 @@ public interface ProductMapper {
                 .map(ProductCategory::getProductCategoryId)
                 .toArray(Long[]::new);
     }
-}
\ No newline at end of file
+}
@@ -6,7 +6,9 @@ import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -14,9 +16,12 @@ import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 
-@Data @Entity @NoArgsConstructor
+// Dynamic update: a flush writes only the columns that changed, not the whole row
+@Data @Entity @NoArgsConstructor @DynamicUpdate
 public class Product {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence ids (unlike IDENTITY) let Hibernate batch inserts and fetch ids 50 at a time
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
     private Long productId;
 
     @NotNull @Size(min=5, max=50)
@@ -40,8 +45,13 @@ public class Product {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
+    // Optimistic lock, bumped by every write so a stale update fails instead of overwriting a newer one
+    @Version
+    private Long version;
+
     @NotNull
     @ManyToMany
+    @BatchSize(size = 100) // initialize the categories of a whole page of products in one statement
     @JoinTable(
         name = "product_category_mapping",
         joinColumns = @JoinColumn(name = "product_id"),
@@ -1,6 +1,8 @@
 package com.bucott.store.product.model;
 
+import com.bucott.store.product.cache.ProductCategoryEntityListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -8,6 +10,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity @Data @NoArgsConstructor
+@EntityListeners(ProductCategoryEntityListener.class)
 public class ProductCategory {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long productCategoryId;
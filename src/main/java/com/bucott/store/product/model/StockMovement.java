@@ -0,0 +1,37 @@
+package com.bucott.store.product.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A committed stock change that has not been applied to {@link Product#getCurrentStock()} yet.
+ * Rows are deleted in the same transaction that applies them, so each one is applied exactly once
+ * even if the application stops between a commit and the next write-behind flush.
+ */
+@Data @Entity @NoArgsConstructor
+public class StockMovement {
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_movement_seq")
+    @SequenceGenerator(name = "stock_movement_seq", sequenceName = "stock_movement_seq", allocationSize = 50)
+    private Long movementId;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    // Negative for stock leaving the warehouse
+    private int quantity;
+
+    private String reservationId;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    public StockMovement(Long productId, int quantity, String reservationId) {
+        this.productId = productId;
+        this.quantity = quantity;
+        this.reservationId = reservationId;
+    }
+}
@@ -1,26 +1,107 @@
 package com.bucott.store.product.repository;
 
+import com.bucott.store.product.dto.ProductAttributeRow;
+import com.bucott.store.product.dto.ProductInfoRow;
+import com.bucott.store.product.dto.ProductStockRow;
 import com.bucott.store.product.model.Product;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
-    // Find all products by category ID
-    List<Product> findByCategories_ProductCategoryId(Long categoryId);
-    // find all producgts by name contains
-    List<Product> findByNameContainingIgnoreCase(String name);
-    // find all products by description contains
-    List<Product> findByDescriptionContainingIgnoreCase(String description);
-    //find all products by price range
-    List<Product> findByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice);
-    // find all products that have stock greater than 0
-    List<Product> findByCurrentStockGreaterThan(int stock);
-    // find all products that have stock of 0 or less
-    List<Product> findByCurrentStockLessThanEqual(int stock);
-    // find by name and or description contains
-    List<Product> findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(String name, String description);
-    // find all products by category and price range
-    List<Product> findByCategories_ProductCategoryIdAndPriceBetween(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice);
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+    // Read-only projection of products with their category names aggregated in the same statement.
+    // Rows are not managed entities, so list endpoints skip the persistence context entirely.
+    String INFO_ROW = "new com.bucott.store.product.dto.ProductInfoRow("
+            + "p.productId, p.name, p.description, p.price, p.cost, p.currentStock, p.createdAt, p.updatedAt, p.version, "
+            + "listagg(c.categoryName, '" + ProductInfoRow.CATEGORY_SEPARATOR + "'))";
+    String FROM_INFO = " FROM Product p LEFT JOIN p.categories c ";
+    String SELECT_INFO = "SELECT " + INFO_ROW + FROM_INFO;
+    String GROUP_INFO = " GROUP BY p.productId, p.name, p.description, p.price, p.cost, p.currentStock, p.createdAt, p.updatedAt, p.version";
+    String IN_CATEGORY = "p.productId IN (SELECT p2.productId FROM Product p2 JOIN p2.categories c2 WHERE c2.productCategoryId = :categoryId)";
+    // The text filters of a ProductQuery; patterns escape their own wildcards with a backslash
+    String MATCHES_TEXT = "(:textPattern IS NULL OR lower(p.name) LIKE :textPattern ESCAPE '\\'"
+            + " OR lower(p.description) LIKE :textPattern ESCAPE '\\')"
+            + " AND (:namePattern IS NULL OR lower(p.name) LIKE :namePattern ESCAPE '\\')"
+            + " AND (:descriptionPattern IS NULL OR lower(p.description) LIKE :descriptionPattern ESCAPE '\\')";
+    // Every filter of a ProductQuery, each one skipped when its parameter is null
+    String MATCHES_QUERY = "WHERE (:categoryId IS NULL OR " + IN_CATEGORY + ")"
+            + " AND (:minPrice IS NULL OR p.price >= :minPrice)"
+            + " AND (:maxPrice IS NULL OR p.price <= :maxPrice)"
+            + " AND (:inStock IS NULL OR (:inStock = true AND p.currentStock > 0) OR (:inStock = false AND p.currentStock <= 0))"
+            + " AND " + MATCHES_TEXT;
+
+    // keyset (seek) pagination over all products, no offset or count query
+    Window<Product> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    // find all products as projection rows
+    @Query(SELECT_INFO + GROUP_INFO)
+    List<ProductInfoRow> findAllInfo();
+    // stream all products as projection rows in id order; must be consumed inside a transaction
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(SELECT_INFO + GROUP_INFO + " ORDER BY p.productId")
+    Stream<ProductInfoRow> streamAllInfo();
+    // find a page of products as projection rows
+    @Query(value = SELECT_INFO + GROUP_INFO, countQuery = "SELECT count(p) FROM Product p")
+    Page<ProductInfoRow> findAllInfo(Pageable pageable);
+    // find one page of products matching a query; each row is {ProductInfoRow, total matches},
+    // so the page and its total come back in a single statement
+    @Query("SELECT " + INFO_ROW + ", count(*) over ()" + FROM_INFO + MATCHES_QUERY + GROUP_INFO)
+    List<Object[]> findInfoByQuery(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock,
+                                   String textPattern, String namePattern, String descriptionPattern, Pageable pageable);
+    // count the products matching a query, for pages past the last match
+    @Query("SELECT count(p) FROM Product p " + MATCHES_QUERY)
+    long countByQuery(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock,
+                      String textPattern, String namePattern, String descriptionPattern);
+    // find the ids of the products matching the text filters of a query
+    @Query("SELECT p.productId FROM Product p WHERE " + MATCHES_TEXT)
+    List<Long> findIdsByText(String textPattern, String namePattern, String descriptionPattern);
+    // load the columns of the attribute index, one row per product and category
+    @Query("SELECT new com.bucott.store.product.dto.ProductAttributeRow(p.productId, p.price, p.currentStock, c.productCategoryId)"
+            + " FROM Product p LEFT JOIN p.categories c")
+    List<ProductAttributeRow> findAllAttributes();
+    // load the attribute index columns of the given products
+    @Query("SELECT new com.bucott.store.product.dto.ProductAttributeRow(p.productId, p.price, p.currentStock, c.productCategoryId)"
+            + " FROM Product p LEFT JOIN p.categories c WHERE p.productId IN :ids")
+    List<ProductAttributeRow> findAttributesByIdIn(Collection<Long> ids);
+    // apply a relative stock change without reading the row, so concurrent writers are not overwritten;
+    // VERSIONED bumps the version so that clients holding the old one must re-read before updating
+    @Modifying
+    // Never below zero: an absolute stock write can land while sales are still waiting in the ledger
+    @Query("UPDATE VERSIONED Product p SET p.currentStock ="
+            + " CASE WHEN p.currentStock + :delta < 0 THEN 0 ELSE p.currentStock + :delta END,"
+            + " p.updatedAt = local datetime WHERE p.productId = :productId")
+    int adjustStock(Long productId, int delta);
+    // take stock only if enough is left, checked and written by one statement; returns 0 when there is not
+    @Modifying
+    @Query("UPDATE VERSIONED Product p SET p.currentStock = p.currentStock - :quantity, p.updatedAt = local datetime"
+            + " WHERE p.productId = :productId AND p.currentStock >= :quantity")
+    int decrementStock(Long productId, int quantity);
+    // read the stock and version of the given products, e.g. right after writing them in the same transaction
+    @Query("SELECT new com.bucott.store.product.dto.ProductStockRow(p.productId, p.currentStock, p.version)"
+            + " FROM Product p WHERE p.productId IN :ids")
+    List<ProductStockRow> findStockByIdIn(Collection<Long> ids);
+    // find one product with its categories in a single statement
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.categories WHERE p.productId = :productId")
+    Optional<Product> findWithCategoriesById(Long productId);
+    // find the given products as projection rows in one round trip
+    @Query(SELECT_INFO + "WHERE p.productId IN :ids" + GROUP_INFO)
+    List<ProductInfoRow> findInfoByIdIn(Collection<Long> ids);
 }
@@ -0,0 +1,12 @@
+package com.bucott.store.product.repository;
+
+import java.util.Map;
+
+public interface ProductRepositoryCustom {
+    /**
+     * Writes the given attribute values to one product in a single UPDATE that names only those
+     * columns, bumping the version. With an expected version the row is only written at that version.
+     * Returns 0 when the product does not exist or is at another version.
+     */
+    int patch(Long productId, Map<String, Object> changes, Long expectedVersion);
+}
@@ -0,0 +1,39 @@
+package com.bucott.store.product.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.util.Map;
+import java.util.Set;
+
+class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+    // Attribute names end up in the statement text, so only these are accepted
+    private static final Set<String> PATCHABLE = Set.of("name", "description", "price", "cost", "currentStock");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int patch(Long productId, Map<String, Object> changes, Long expectedVersion) {
+        StringBuilder statement = new StringBuilder("UPDATE VERSIONED Product p SET p.updatedAt = local datetime");
+        for (String attribute : changes.keySet()) {
+            if (!PATCHABLE.contains(attribute)) {
+                throw new IllegalArgumentException("Product attribute cannot be patched: " + attribute);
+            }
+            statement.append(", p.").append(attribute).append(" = :").append(attribute);
+        }
+        statement.append(" WHERE p.productId = :productId");
+        if (expectedVersion != null) {
+            statement.append(" AND p.version = :version");
+        }
+
+        Query query = entityManager.createQuery(statement.toString());
+        changes.forEach(query::setParameter);
+        query.setParameter("productId", productId);
+        if (expectedVersion != null) {
+            query.setParameter("version", expectedVersion);
+        }
+        return query.executeUpdate();
+    }
+}
@@ -0,0 +1,12 @@
+package com.bucott.store.product.repository;
+
+import com.bucott.store.product.model.StockMovement;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+    // oldest movements first, for the write-behind flush
+    List<StockMovement> findByOrderByMovementIdAsc(Limit limit);
+}
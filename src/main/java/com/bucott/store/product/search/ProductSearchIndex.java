@@ -0,0 +1,412 @@
+package com.bucott.store.product.search;
+
+import com.bucott.store.product.dto.ProductInfoDTO;
+import com.bucott.store.product.event.ProductChangedEvent;
+import com.bucott.store.product.event.ProductStockChangedEvent;
+import com.bucott.store.product.event.ProductsImportedEvent;
+import com.bucott.store.product.mapper.ProductMapper;
+import com.bucott.store.product.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product names and descriptions, ranked with BM25.
+ * Keyword searches are answered from the indexed product snapshots without touching the database.
+ * <p>
+ * Searches tolerate typos: a query term missing from the vocabulary is replaced by the vocabulary
+ * terms within a few edits of it. Candidates come from a trigram index over the vocabulary and
+ * are verified with a bounded edit distance; their scores are scaled down by how far off they were.
+ */
+@Component
+public class ProductSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // A term in the name counts as much as this many occurrences in the description
+    private static final int NAME_WEIGHT = 2;
+
+    private static final Comparator<Map.Entry<Long, Double>> RANKING =
+            Map.Entry.<Long, Double>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey());
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+    private final int maxEdits;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, IndexedProduct> products = new HashMap<>();
+    private final Map<String, Map<Long, Posting>> postings = new HashMap<>();
+    private final Map<String, Set<String>> termsByTrigram = new HashMap<>();
+    private long totalLength;
+    private volatile boolean ready;
+
+    public ProductSearchIndex(ProductRepository productRepository, ProductMapper productMapper,
+                              @Value("${app.products.search.max-edits:2}") int maxEdits) {
+        this.productRepository = productRepository;
+        this.productMapper = productMapper;
+        this.maxEdits = maxEdits;
+    }
+
+    public enum Field {
+        ANY, NAME, DESCRIPTION
+    }
+
+    public record SearchHit(ProductInfoDTO product, double score) { }
+
+    public record SearchResult(List<SearchHit> hits, int totalHits) { }
+
+    private record Posting(int nameFrequency, int descriptionFrequency) {
+        int frequency(Field field) {
+            return switch (field) {
+                case ANY -> NAME_WEIGHT * nameFrequency + descriptionFrequency;
+                case NAME -> nameFrequency;
+                case DESCRIPTION -> descriptionFrequency;
+            };
+        }
+    }
+
+    // A vocabulary term standing in for a query term, and how close it is (1 when exact)
+    private record TermMatch(String term, double similarity) { }
+
+    private record IndexedProduct(ProductInfoDTO product, int length, Set<String> terms) { }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        List<ProductInfoDTO> all = productRepository.findAllInfo()
+                .stream()
+                .map(productMapper::toInfoDTO)
+                .toList();
+
+        lock.writeLock().lock();
+        try {
+            products.clear();
+            postings.clear();
+            termsByTrigram.clear();
+            totalLength = 0;
+            all.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ready = true;
+        log.info("Indexed {} products for keyword search", all.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // After commit: searching must not find a write that may still roll back
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isDeletion()) {
+            remove(event.productId());
+        } else {
+            index(event.product());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        lock.writeLock().lock();
+        try {
+            for (ProductChangedEvent product : event.products()) {
+                delete(product.productId());
+                add(product.product());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Same text, so the postings stay; only the product handed out with hits is swapped for the new one
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductStockChanged(ProductStockChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            for (ProductChangedEvent changed : event.products()) {
+                ProductInfoDTO product = changed.product();
+                IndexedProduct existing = products.get(product.productId());
+                if (existing != null && Objects.equals(existing.product().name(), product.name())
+                        && Objects.equals(existing.product().description(), product.description())) {
+                    products.put(product.productId(), new IndexedProduct(product, existing.length(), existing.terms()));
+                } else {
+                    delete(product.productId());
+                    add(product);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(ProductInfoDTO product) {
+        lock.writeLock().lock();
+        try {
+            delete(product.productId());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            delete(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public SearchResult search(String query, int offset, int limit) {
+        return search(query, Field.ANY, offset, limit);
+    }
+
+    /**
+     * Ranks every product matching at least one query term in the given field, exactly or within
+     * the allowed edits, and returns the hits in {@code [offset, offset + limit)}. Only the top
+     * {@code offset + limit} hits are ordered.
+     */
+    public SearchResult search(String query, Field field, int offset, int limit) {
+        List<String> queryTerms = tokenize(query).stream().distinct().toList();
+
+        lock.readLock().lock();
+        try {
+            if (queryTerms.isEmpty() || products.isEmpty()) {
+                return new SearchResult(List.of(), 0);
+            }
+
+            int documentCount = products.size();
+            double averageLength = (double) totalLength / documentCount;
+            Map<Long, Double> scores = new HashMap<>();
+
+            for (String queryTerm : queryTerms) {
+                // A product scores once per query term, through its best matching vocabulary term
+                Map<Long, Double> termScores = new HashMap<>();
+                for (TermMatch match : matches(queryTerm, field)) {
+                    Map<Long, Posting> termPostings = postings.get(match.term());
+                    int documentFrequency = documentFrequency(termPostings, field);
+                    double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+
+                    for (Map.Entry<Long, Posting> entry : termPostings.entrySet()) {
+                        int frequency = entry.getValue().frequency(field);
+                        if (frequency == 0) {
+                            continue;
+                        }
+                        int length = products.get(entry.getKey()).length();
+                        double saturation = frequency * (K1 + 1)
+                                / (frequency + K1 * (1 - B + B * length / averageLength));
+                        termScores.merge(entry.getKey(), match.similarity() * idf * saturation, Math::max);
+                    }
+                }
+                termScores.forEach((productId, score) -> scores.merge(productId, score, Double::sum));
+            }
+
+            int wanted = (int) Math.min((long) offset + limit, scores.size());
+            List<SearchHit> hits = new ArrayList<>();
+            if (offset < wanted) {
+                List<Map.Entry<Long, Double>> top = topEntries(scores, wanted);
+                for (Map.Entry<Long, Double> entry : top.subList(offset, wanted)) {
+                    hits.add(new SearchHit(products.get(entry.getKey()).product(), entry.getValue()));
+                }
+            }
+            return new SearchResult(hits, scores.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    // The term itself when the field has it, otherwise the vocabulary terms within the allowed edits
+    private List<TermMatch> matches(String queryTerm, Field field) {
+        Map<Long, Posting> exact = postings.get(queryTerm);
+        if (exact != null && documentFrequency(exact, field) > 0) {
+            return List.of(new TermMatch(queryTerm, 1.0));
+        }
+        int allowedEdits = allowedEdits(queryTerm.length());
+        if (allowedEdits == 0) {
+            return List.of();
+        }
+
+        Set<String> queryTrigrams = trigrams(queryTerm);
+        Map<String, Integer> sharedTrigrams = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            for (String term : termsByTrigram.getOrDefault(trigram, Set.of())) {
+                sharedTrigrams.merge(term, 1, Integer::sum);
+            }
+        }
+        // Each edit destroys at most three trigram occurrences, so at most three distinct trigrams;
+        // counted over the distinct ones, since a repeated trigram ("aaa") is only shared once
+        int minShared = Math.max(1, queryTrigrams.size() - 3 * allowedEdits);
+
+        List<TermMatch> matches = new ArrayList<>();
+        for (Map.Entry<String, Integer> candidate : sharedTrigrams.entrySet()) {
+            String term = candidate.getKey();
+            if (candidate.getValue() < minShared || Math.abs(term.length() - queryTerm.length()) > allowedEdits) {
+                continue;
+            }
+            int distance = editDistance(queryTerm, term, allowedEdits);
+            if (distance <= allowedEdits && documentFrequency(postings.get(term), field) > 0) {
+                matches.add(new TermMatch(term, 1.0 - (double) distance / Math.max(queryTerm.length(), term.length())));
+            }
+        }
+        return matches;
+    }
+
+    // Short words get fewer edits, or a three-letter query would match half the vocabulary
+    private int allowedEdits(int length) {
+        if (length <= 2) {
+            return 0;
+        }
+        return length <= 5 ? Math.min(1, maxEdits) : maxEdits;
+    }
+
+    private static int documentFrequency(Map<Long, Posting> termPostings, Field field) {
+        if (field == Field.ANY) {
+            return termPostings.size();
+        }
+        int documentFrequency = 0;
+        for (Posting posting : termPostings.values()) {
+            if (posting.frequency(field) > 0) {
+                documentFrequency++;
+            }
+        }
+        return documentFrequency;
+    }
+
+    // Padded so that the first and last characters get trigrams of their own
+    private static Set<String> trigrams(String term) {
+        String padded = "$$" + term + "$";
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /** Levenshtein distance, or {@code bound + 1} as soon as it is known to exceed {@code bound}. */
+    static int editDistance(String a, String b, int bound) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > bound) {
+                return bound + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], bound + 1);
+    }
+
+    private static List<Map.Entry<Long, Double>> topEntries(Map<Long, Double> scores, int count) {
+        // Min-heap on ranking order: the head is always the worst of the current top entries
+        PriorityQueue<Map.Entry<Long, Double>> heap = new PriorityQueue<>(count + 1, RANKING.reversed());
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            heap.offer(entry);
+            if (heap.size() > count) {
+                heap.poll();
+            }
+        }
+        List<Map.Entry<Long, Double>> top = new ArrayList<>(heap);
+        top.sort(RANKING);
+        return top;
+    }
+
+    private void add(ProductInfoDTO product) {
+        List<String> nameTokens = tokenize(product.name());
+        List<String> descriptionTokens = tokenize(product.description());
+
+        Map<String, int[]> frequencies = new HashMap<>();
+        nameTokens.forEach(token -> frequencies.computeIfAbsent(token, t -> new int[2])[0]++);
+        descriptionTokens.forEach(token -> frequencies.computeIfAbsent(token, t -> new int[2])[1]++);
+
+        frequencies.forEach((term, counts) -> postings
+                .computeIfAbsent(term, this::newTerm)
+                .put(product.productId(), new Posting(counts[0], counts[1])));
+
+        int length = NAME_WEIGHT * nameTokens.size() + descriptionTokens.size();
+        products.put(product.productId(),
+                new IndexedProduct(product, length, Collections.unmodifiableSet(new HashSet<>(frequencies.keySet()))));
+        totalLength += length;
+    }
+
+    private void delete(Long productId) {
+        IndexedProduct existing = products.remove(productId);
+        if (existing == null) {
+            return;
+        }
+        for (String term : existing.terms()) {
+            Map<Long, Posting> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(productId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                    removeTerm(term);
+                }
+            }
+        }
+        totalLength -= existing.length();
+    }
+
+    // Enters a term that just joined the vocabulary into the trigram index
+    private Map<Long, Posting> newTerm(String term) {
+        for (String trigram : trigrams(term)) {
+            termsByTrigram.computeIfAbsent(trigram, t -> new HashSet<>()).add(term);
+        }
+        return new HashMap<>();
+    }
+
+    private void removeTerm(String term) {
+        for (String trigram : trigrams(term)) {
+            Set<String> terms = termsByTrigram.get(trigram);
+            if (terms != null) {
+                terms.remove(term);
+                if (terms.isEmpty()) {
+                    termsByTrigram.remove(trigram);
+                }
+            }
+        }
+    }
+}
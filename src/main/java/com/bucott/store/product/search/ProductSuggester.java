@@ -0,0 +1,379 @@
+package com.bucott.store.product.search;
+
+import com.bucott.store.product.dto.ProductInfoRow;
+import com.bucott.store.product.dto.ProductSuggestionDTO;
+import com.bucott.store.product.event.ProductChangedEvent;
+import com.bucott.store.product.event.ProductSoldEvent;
+import com.bucott.store.product.event.ProductsImportedEvent;
+import com.bucott.store.product.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Autocomplete over product names. Every name is normalized into words (lower case, accents
+ * stripped) and each suffix starting at a word boundary is a key in a character trie, so
+ * "pro m" finds "iPhone 15 Pro Max". Each trie node keeps the best products of its subtree,
+ * so a lookup is a walk down the prefix and a copy of that node's list.
+ * <p>
+ * Products rank by units sold since startup, then by shorter name. Adding a product or selling
+ * one only offers it to the nodes on its paths; removing one recomputes those nodes from their
+ * children's lists.
+ */
+@Component
+public class ProductSuggester {
+    private static final Logger log = LoggerFactory.getLogger(ProductSuggester.class);
+    private static final long[] NO_IDS = new long[0];
+
+    private final ProductRepository productRepository;
+    private final int maxSuggestions;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String> names = new HashMap<>();
+    private final Map<Long, Long> unitsSold = new HashMap<>();
+    private Node root = new Node();
+
+    public ProductSuggester(ProductRepository productRepository,
+                            @Value("${app.products.suggest.max-suggestions:10}") int maxSuggestions) {
+        this.productRepository = productRepository;
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    private static final class Node {
+        char[] labels = new char[0]; // sorted, parallel to children
+        Node[] children = new Node[0];
+        long[] terminals = NO_IDS; // products with a key ending here
+        long[] top = NO_IDS; // best products in this subtree, best first
+
+        Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            Node child = new Node();
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newLabels[insertAt] = label;
+            newChildren[insertAt] = child;
+            System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            labels = newLabels;
+            children = newChildren;
+            return child;
+        }
+
+        void removeChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index < 0) {
+                return;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        boolean isEmpty() {
+            return terminals.length == 0 && children.length == 0;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        List<ProductInfoRow> rows = productRepository.findAllInfo();
+
+        lock.writeLock().lock();
+        try {
+            names.clear();
+            root = new Node();
+            for (ProductInfoRow row : rows) {
+                add(row.productId(), row.name());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Indexed {} product names for suggestions", rows.size());
+    }
+
+    // After commit, so a rolled-back write never becomes a suggestion
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        lock.writeLock().lock();
+        try {
+            event.products().forEach(this::apply);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductSold(ProductSoldEvent event) {
+        lock.writeLock().lock();
+        try {
+            unitsSold.merge(event.productId(), (long) event.quantity(), Long::sum);
+            String name = names.get(event.productId());
+            if (name != null) {
+                // Ranking only moved up, so offering it again along its paths is enough
+                for (String key : keys(name)) {
+                    for (Node node : path(key)) {
+                        offer(node, event.productId());
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock
+    private void apply(ProductChangedEvent event) {
+        if (event.isDeletion()) {
+            remove(event.productId());
+            unitsSold.remove(event.productId());
+        } else if (!event.product().name().equals(names.get(event.productId()))) {
+            remove(event.productId());
+            add(event.productId(), event.product().name());
+        }
+    }
+
+    /** Products with a name word starting with the prefix, best first, at most {@code limit}. */
+    public List<ProductSuggestionDTO> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            int count = Math.min(limit, node.top.length);
+            List<ProductSuggestionDTO> suggestions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                suggestions.add(new ProductSuggestionDTO(node.top[i], names.get(node.top[i])));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int maxSuggestions() {
+        return maxSuggestions;
+    }
+
+    // Lower-cased words without accents, joined by single spaces; a trailing partial word is kept
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return String.join(" ", ProductSearchIndex.tokenize(folded));
+    }
+
+    // The normalized name and each of its suffixes that starts at a word
+    private static List<String> keys(String name) {
+        String normalized = normalize(name);
+        List<String> keys = new ArrayList<>();
+        if (normalized.isEmpty()) {
+            return keys;
+        }
+        keys.add(normalized);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            keys.add(normalized.substring(i + 1));
+        }
+        return keys;
+    }
+
+    private void add(Long productId, String name) {
+        names.put(productId, name);
+        for (String key : keys(name)) {
+            Node node = root;
+            List<Node> path = new ArrayList<>(key.length() + 1);
+            path.add(node);
+            for (int i = 0; i < key.length(); i++) {
+                node = node.childOrCreate(key.charAt(i));
+                path.add(node);
+            }
+            node.terminals = append(node.terminals, productId);
+            for (Node onPath : path) {
+                offer(onPath, productId);
+            }
+        }
+    }
+
+    private void remove(Long productId) {
+        String name = names.remove(productId);
+        if (name == null) {
+            return;
+        }
+        List<String> keys = new ArrayList<>();
+        List<List<Node>> paths = new ArrayList<>();
+        int maxDepth = 0;
+        for (String key : keys(name)) {
+            List<Node> path = path(key);
+            if (path.size() != key.length() + 1) {
+                continue;
+            }
+            Node leaf = path.get(key.length());
+            leaf.terminals = without(leaf.terminals, productId);
+            keys.add(key);
+            paths.add(path);
+            maxDepth = Math.max(maxDepth, key.length());
+        }
+        // Deepest first across all paths, so a node is only recomputed once every child list is current
+        for (int depth = maxDepth; depth >= 0; depth--) {
+            for (int i = 0; i < paths.size(); i++) {
+                List<Node> path = paths.get(i);
+                if (depth >= path.size()) {
+                    continue;
+                }
+                Node node = path.get(depth);
+                if (depth > 0 && node.isEmpty()) {
+                    path.get(depth - 1).removeChild(keys.get(i).charAt(depth - 1));
+                } else if (indexOf(node.top, productId) >= 0) {
+                    recompute(node);
+                }
+            }
+        }
+    }
+
+    // The nodes along a key, from the root; stops early where the key leaves the trie
+    private List<Node> path(String key) {
+        List<Node> path = new ArrayList<>(key.length() + 1);
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < key.length(); i++) {
+            node = node.child(key.charAt(i));
+            if (node == null) {
+                break;
+            }
+            path.add(node);
+        }
+        return path;
+    }
+
+    // Puts a product that was added or moved up into a node's list if it now ranks high enough
+    private void offer(Node node, long productId) {
+        long[] top = node.top;
+        int existing = indexOf(top, productId);
+        if (existing < 0 && top.length == maxSuggestions && compare(productId, top[top.length - 1]) >= 0) {
+            return;
+        }
+        long[] others = existing >= 0 ? without(top, productId) : top;
+        int insertAt = 0;
+        while (insertAt < others.length && compare(others[insertAt], productId) < 0) {
+            insertAt++;
+        }
+        int size = Math.min(others.length + 1, maxSuggestions);
+        long[] updated = new long[size];
+        System.arraycopy(others, 0, updated, 0, Math.min(insertAt, size));
+        if (insertAt < size) {
+            updated[insertAt] = productId;
+            System.arraycopy(others, insertAt, updated, insertAt + 1, size - insertAt - 1);
+        }
+        node.top = updated;
+    }
+
+    private void recompute(Node node) {
+        List<Long> candidates = new ArrayList<>();
+        for (long productId : node.terminals) {
+            candidates.add(productId);
+        }
+        for (Node child : node.children) {
+            for (long productId : child.top) {
+                candidates.add(productId);
+            }
+        }
+        node.top = candidates.stream()
+                .distinct()
+                .sorted(this::compare)
+                .limit(maxSuggestions)
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    // Most units sold first, then the shorter (more specific) name, then by name and id
+    private int compare(long a, long b) {
+        int bySales = Long.compare(unitsSold.getOrDefault(b, 0L), unitsSold.getOrDefault(a, 0L));
+        if (bySales != 0) {
+            return bySales;
+        }
+        String nameA = names.get(a);
+        String nameB = names.get(b);
+        int byLength = Integer.compare(nameA.length(), nameB.length());
+        if (byLength != 0) {
+            return byLength;
+        }
+        int byName = nameA.compareToIgnoreCase(nameB);
+        return byName != 0 ? byName : Long.compare(a, b);
+    }
+
+    private static int indexOf(long[] ids, long productId) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == productId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long[] append(long[] ids, long productId) {
+        long[] appended = Arrays.copyOf(ids, ids.length + 1);
+        appended[ids.length] = productId;
+        return appended;
+    }
+
+    private static long[] without(long[] ids, long productId) {
+        int index = indexOf(ids, productId);
+        if (index < 0) {
+            return ids;
+        }
+        long[] remaining = new long[ids.length - 1];
+        System.arraycopy(ids, 0, remaining, 0, index);
+        System.arraycopy(ids, index + 1, remaining, index, ids.length - index - 1);
+        return remaining;
+    }
+}
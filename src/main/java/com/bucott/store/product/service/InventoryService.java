@@ -0,0 +1,13 @@
+package com.bucott.store.product.service;
+
+import com.bucott.store.product.dto.StockLevelDTO;
+import com.bucott.store.product.dto.StockReservationDTO;
+import com.bucott.store.product.dto.StockReservationRequestDTO;
+
+public interface InventoryService {
+    StockReservationDTO reserveStock(StockReservationRequestDTO request);
+    StockReservationDTO commitReservation(String reservationId);
+    void releaseReservation(String reservationId);
+    StockLevelDTO decrementStock(Long productId, int quantity);
+    StockLevelDTO getStockLevel(Long productId);
+}
@@ -0,0 +1,70 @@
+package com.bucott.store.product.service;
+
+import com.bucott.store.common.exception.InvalidInputException;
+import com.bucott.store.product.dto.StockLevelDTO;
+import com.bucott.store.product.dto.StockReservationDTO;
+import com.bucott.store.product.dto.StockReservationRequestDTO;
+import com.bucott.store.product.inventory.InventoryEngine;
+import com.bucott.store.product.inventory.StockCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+@Service
+public class InventoryServiceImpl implements InventoryService {
+    private static final Logger log = LoggerFactory.getLogger(InventoryServiceImpl.class);
+    private final InventoryEngine inventoryEngine;
+
+    public InventoryServiceImpl(InventoryEngine inventoryEngine) {
+        this.inventoryEngine = inventoryEngine;
+    }
+
+    @Override
+    public StockReservationDTO reserveStock(StockReservationRequestDTO request) {
+        log.info("Reserving {} units of product ID: {}", request.quantity(), request.productId());
+        if (request.quantity() <= 0) {
+            log.error("Invalid reservation quantity: {}", request.quantity());
+            throw new InvalidInputException("Reservation quantity must be greater than zero");
+        }
+        InventoryEngine.Reservation reservation = inventoryEngine.reserve(request.productId(), request.quantity());
+        log.info("Reserved {} units of product ID: {} as {}", reservation.quantity(), reservation.productId(), reservation.reservationId());
+        return toDTO(reservation);
+    }
+
+    @Override
+    public StockReservationDTO commitReservation(String reservationId) {
+        log.info("Committing stock reservation: {}", reservationId);
+        return toDTO(inventoryEngine.commit(reservationId));
+    }
+
+    @Override
+    public void releaseReservation(String reservationId) {
+        log.info("Releasing stock reservation: {}", reservationId);
+        inventoryEngine.release(reservationId);
+    }
+
+    @Override
+    public StockLevelDTO decrementStock(Long productId, int quantity) {
+        log.info("Decrementing stock of product ID: {} by {}", productId, quantity);
+        if (quantity <= 0) {
+            log.error("Invalid decrement quantity: {}", quantity);
+            throw new InvalidInputException("Decrement quantity must be greater than zero");
+        }
+        inventoryEngine.decrement(productId, quantity);
+        return getStockLevel(productId);
+    }
+
+    @Override
+    public StockLevelDTO getStockLevel(Long productId) {
+        StockCounter counter = inventoryEngine.counter(productId);
+        // Read once so the three numbers are consistent with each other
+        int onHand = counter.onHand();
+        int reserved = counter.reserved();
+        return new StockLevelDTO(productId, onHand, reserved, onHand - reserved);
+    }
+
+    private static StockReservationDTO toDTO(InventoryEngine.Reservation reservation) {
+        return new StockReservationDTO(reservation.reservationId(), reservation.productId(),
+                reservation.quantity(), reservation.expiresAt());
+    }
+}
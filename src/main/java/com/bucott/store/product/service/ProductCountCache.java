@@ -0,0 +1,53 @@
+package com.bucott.store.product.service;
+
+import com.bucott.store.product.event.ProductChangedEvent;
+import com.bucott.store.product.event.ProductsImportedEvent;
+import com.bucott.store.product.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cached estimate of the number of products, so cursor pages don't need a COUNT(*) each.
+ * Kept current by product events and re-counted once the cached value is older than the TTL.
+ */
+@Component
+public class ProductCountCache {
+    private final ProductRepository productRepository;
+    private final long ttlMillis;
+
+    private final AtomicLong count = new AtomicLong();
+    private volatile long countedAt = Long.MIN_VALUE;
+
+    public ProductCountCache(ProductRepository productRepository,
+                             @Value("${app.products.count-cache-ttl-ms:60000}") long ttlMillis) {
+        this.productRepository = productRepository;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public long estimate() {
+        long now = System.currentTimeMillis();
+        if (countedAt == Long.MIN_VALUE || now - countedAt > ttlMillis) {
+            count.set(productRepository.count());
+            countedAt = now;
+        }
+        return count.get();
+    }
+
+    // After commit, or a rolled-back create would stay counted until the next recount
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.type()) {
+            case CREATED -> count.incrementAndGet();
+            case DELETED -> count.decrementAndGet();
+            default -> { }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        count.addAndGet(event.products().size());
+    }
+}
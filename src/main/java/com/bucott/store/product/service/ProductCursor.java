@@ -0,0 +1,85 @@
+package com.bucott.store.product.service;
+
+import com.bucott.store.common.exception.InvalidInputException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Opaque keyset cursor for the product listing: the sort key of the last product on a page
+ * plus its productId as a tiebreaker, Base64url encoded so clients treat it as a token.
+ */
+public record ProductCursor(String sortBy, Sort.Direction direction, Object sortValue, Long productId) {
+
+    private static final String ID = "productId";
+    private static final Set<String> SORTABLE = Set.of(ID, "name", "price", "cost", "currentStock", "createdAt", "updatedAt");
+    // Keyset positions compare against the last value, which price and cost may not have
+    private static final Set<String> CURSOR_SORTABLE = Set.of(ID, "name", "currentStock", "createdAt", "updatedAt");
+
+    public static void requireSortable(String sortBy) {
+        if (!SORTABLE.contains(sortBy)) {
+            throw new InvalidInputException("Cannot sort products by: " + sortBy);
+        }
+    }
+
+    public static void requireCursorSortable(String sortBy) {
+        if (!CURSOR_SORTABLE.contains(sortBy)) {
+            throw new InvalidInputException("Cannot page products by cursor sorted by: " + sortBy);
+        }
+    }
+
+    public static Sort sort(String sortBy, Sort.Direction direction) {
+        Sort sort = Sort.by(direction, sortBy);
+        return ID.equals(sortBy) ? sort : sort.and(Sort.by(direction, ID));
+    }
+
+    public static ProductCursor from(String sortBy, Sort.Direction direction, KeysetScrollPosition position) {
+        Map<String, ?> keys = position.getKeys();
+        return new ProductCursor(sortBy, direction, keys.get(sortBy), (Long) keys.get(ID));
+    }
+
+    public ScrollPosition toScrollPosition() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put(sortBy, sortValue);
+        keys.put(ID, productId);
+        return ScrollPosition.forward(keys);
+    }
+
+    public String encode() {
+        // The value goes last so that it may contain the separator
+        String raw = String.join("\n", sortBy, direction.name(), String.valueOf(productId), String.valueOf(sortValue));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\n", 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            String sortBy = parts[0];
+            requireCursorSortable(sortBy);
+            return new ProductCursor(sortBy, Sort.Direction.valueOf(parts[1]), parseValue(sortBy, parts[3]), Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidInputException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    private static Object parseValue(String sortBy, String value) {
+        return switch (sortBy) {
+            case ID -> Long.valueOf(value);
+            case "currentStock" -> Integer.valueOf(value);
+            case "createdAt", "updatedAt" -> LocalDateTime.parse(value);
+            default -> value;
+        };
+    }
+}
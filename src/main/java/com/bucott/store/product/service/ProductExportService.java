@@ -0,0 +1,10 @@
+package com.bucott.store.product.service;
+
+import com.bucott.store.product.dto.ProductFileFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ProductExportService {
+    long exportProducts(OutputStream output, ProductFileFormat format) throws IOException;
+}
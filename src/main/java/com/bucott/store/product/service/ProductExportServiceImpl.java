@@ -0,0 +1,132 @@
+package com.bucott.store.product.service;
+
+import com.bucott.store.product.cache.ProductCategoryDictionary;
+import com.bucott.store.product.dto.ProductFileFormat;
+import com.bucott.store.product.dto.ProductInfoDTO;
+import com.bucott.store.product.dto.ProductInfoRow;
+import com.bucott.store.product.mapper.ProductMapper;
+import com.bucott.store.product.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Writes the whole catalog from a forward-only projection stream. Rows are never managed
+ * entities and are written as they are read, so memory use does not grow with the catalog.
+ */
+@Service
+public class ProductExportServiceImpl implements ProductExportService {
+    private static final Logger log = LoggerFactory.getLogger(ProductExportServiceImpl.class);
+    private static final int FLUSH_EVERY = 1000;
+    // Written after the columns the import reads, which ignores them
+    private static final String CSV_READ_ONLY_COLUMNS = "productId,createdAt,updatedAt,categoryNames";
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+    private final ObjectMapper objectMapper;
+    private final ProductCategoryDictionary categoryDictionary;
+
+    public ProductExportServiceImpl(ProductRepository productRepository, ProductMapper productMapper, ObjectMapper objectMapper,
+                                    ProductCategoryDictionary categoryDictionary) {
+        this.productRepository = productRepository;
+        this.productMapper = productMapper;
+        this.objectMapper = objectMapper;
+        this.categoryDictionary = categoryDictionary;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportProducts(OutputStream output, ProductFileFormat format) throws IOException {
+        log.info("Exporting products as {}", format);
+        long count = 0;
+        try (Stream<ProductInfoRow> rows = productRepository.streamAllInfo()) {
+            Iterator<ProductInfoRow> iterator = rows.iterator();
+            if (format == ProductFileFormat.CSV) {
+                count = writeCsv(iterator, output);
+            } else {
+                count = writeNdjson(iterator, output);
+            }
+        }
+        log.info("Exported {} products as {}", count, format);
+        return count;
+    }
+
+    private long writeNdjson(Iterator<ProductInfoRow> rows, OutputStream output) throws IOException {
+        long count = 0;
+        try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(output)) {
+            while (rows.hasNext()) {
+                writer.write(productMapper.toInfoDTO(rows.next()));
+                if (++count % FLUSH_EVERY == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        return count;
+    }
+
+    // Starts with the import's columns, so the file can be imported again as it is
+    private long writeCsv(Iterator<ProductInfoRow> rows, OutputStream output) throws IOException {
+        long count = 0;
+        Map<String, Long> categoryIdsByName = new HashMap<>();
+        categoryDictionary.all().forEach((id, name) -> categoryIdsByName.put(name, id));
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write(String.join(",", ProductFileFormat.CSV_COLUMNS) + "," + CSV_READ_ONLY_COLUMNS + "\n");
+        while (rows.hasNext()) {
+            ProductInfoDTO product = productMapper.toInfoDTO(rows.next());
+            String categoryIds = String.join(";", product.categoryNames().stream()
+                    .map(categoryIdsByName::get)
+                    .filter(Objects::nonNull)
+                    .map(String::valueOf)
+                    .toList());
+            writer.write(String.join(",",
+                    csv(product.name()),
+                    csv(product.description()),
+                    csv(product.price()),
+                    csv(product.cost()),
+                    String.valueOf(product.currentStock()),
+                    categoryIds,
+                    String.valueOf(product.productId()),
+                    String.valueOf(product.createdAt()),
+                    String.valueOf(product.updatedAt()),
+                    csv(String.join(";", product.categoryNames()))));
+            writer.write('\n');
+            if (++count % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    // An empty field, not "null", so the import reads it back as a missing value
+    private static String csv(BigDecimal value) {
+        return value == null ? "" : value.toString();
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,11 @@
+package com.bucott.store.product.service;
+
+import com.bucott.store.product.dto.ProductFileFormat;
+import com.bucott.store.product.dto.ProductImportResultDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ProductImportService {
+    ProductImportResultDTO importProducts(InputStream input, ProductFileFormat format) throws IOException;
+}
@@ -0,0 +1,283 @@
+package com.bucott.store.product.service;
+
+import com.bucott.store.common.exception.InvalidInputException;
+import com.bucott.store.product.cache.ProductCategoryDictionary;
+import com.bucott.store.product.dto.ProductCreateUpdateRequestDTO;
+import com.bucott.store.product.dto.ProductFileFormat;
+import com.bucott.store.product.dto.ProductImportResultDTO;
+import com.bucott.store.product.event.ProductChangedEvent;
+import com.bucott.store.product.event.ProductsImportedEvent;
+import com.bucott.store.product.mapper.ProductMapper;
+import com.bucott.store.product.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Streams product rows from NDJSON or CSV, validates each chunk in parallel and inserts the
+ * valid rows in JDBC batches, committing once per chunk. A bad row is reported and skipped;
+ * it never fails the rows around it.
+ */
+@Service
+public class ProductImportServiceImpl implements ProductImportService {
+    private static final Logger log = LoggerFactory.getLogger(ProductImportServiceImpl.class);
+    private static final List<String> CSV_COLUMNS = ProductFileFormat.CSV_COLUMNS;
+    // Far beyond any valid row; stops a stray quote from pulling the rest of the file into one record
+    private static final int MAX_CSV_RECORD_LENGTH = 64 * 1024;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ProductCategoryDictionary categoryDictionary;
+    private final ProductMapper productMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    public ProductImportServiceImpl(PlatformTransactionManager transactionManager, Validator validator, ObjectMapper objectMapper,
+                                    ProductCategoryDictionary categoryDictionary, ProductMapper productMapper,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Value("${app.products.import.chunk-size:1000}") int chunkSize,
+                                    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize,
+                                    @Value("${app.products.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.categoryDictionary = categoryDictionary;
+        this.productMapper = productMapper;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    private record Row(long line, String text) { }
+
+    // Either a product ready to insert or the reason the row was rejected
+    private record ParsedRow(long line, Product product, String error) { }
+
+    @Override
+    public ProductImportResultDTO importProducts(InputStream input, ProductFileFormat format) throws IOException {
+        log.info("Starting {} product import: chunkSize={}, batchSize={}", format, chunkSize, batchSize);
+        ImportProgress progress = new ImportProgress();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            if (format == ProductFileFormat.CSV) {
+                String header = reader.readLine();
+                lineNumber++;
+                // Trailing columns, such as the read-only ones of an export, are ignored
+                List<String> columns = header == null ? List.of() : parseCsvLine(header).stream().map(String::trim).toList();
+                if (columns.size() < CSV_COLUMNS.size() || !columns.subList(0, CSV_COLUMNS.size()).equals(CSV_COLUMNS)) {
+                    throw new InvalidInputException("CSV header must start with: " + String.join(",", CSV_COLUMNS));
+                }
+            }
+
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                long firstLine = lineNumber;
+                if (format == ProductFileFormat.CSV) {
+                    // A quoted field may hold line breaks; read on until its closing quote
+                    StringBuilder record = new StringBuilder(line);
+                    String next;
+                    while (insideQuotes(record) && record.length() < MAX_CSV_RECORD_LENGTH
+                            && (next = reader.readLine()) != null) {
+                        lineNumber++;
+                        record.append('\n').append(next);
+                    }
+                    line = record.toString();
+                }
+                chunk.add(new Row(firstLine, line));
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, format, progress);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, format, progress);
+            }
+        }
+
+        log.info("Product import finished: rows={}, imported={}, failed={}", progress.totalRows, progress.imported, progress.failed);
+        return new ProductImportResultDTO(progress.totalRows, progress.imported, progress.failed, progress.errors);
+    }
+
+    private void importChunk(List<Row> chunk, ProductFileFormat format, ImportProgress progress) {
+        progress.totalRows += chunk.size();
+
+        List<ParsedRow> parsed = chunk.parallelStream()
+                .map(row -> parse(row, format))
+                .toList();
+
+        List<Product> products = new ArrayList<>(parsed.size());
+        List<Long> lines = new ArrayList<>(parsed.size());
+        for (ParsedRow row : parsed) {
+            if (row.error() != null) {
+                progress.reject(row.line(), row.error());
+            } else {
+                products.add(row.product());
+                lines.add(row.line());
+            }
+        }
+        if (products.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < products.size(); i++) {
+                    entityManager.persist(products.get(i));
+                    if ((i + 1) % batchSize == 0) {
+                        entityManager.flush();
+                        entityManager.clear();
+                    }
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to import chunk starting at line {}: {}", lines.get(0), e.getMessage());
+            lines.forEach(line -> progress.reject(line, "Chunk rolled back: " + e.getMessage()));
+            return;
+        }
+
+        progress.imported += products.size();
+        // One event for the chunk: listeners take it in at once instead of reacting row by row
+        eventPublisher.publishEvent(new ProductsImportedEvent(products.stream()
+                .map(product -> ProductChangedEvent.created(productMapper.toInfoDTO(product), productMapper.toCategoryIds(product)))
+                .toList()));
+    }
+
+    private ParsedRow parse(Row row, ProductFileFormat format) {
+        try {
+            ProductCreateUpdateRequestDTO dto = format == ProductFileFormat.CSV
+                    ? fromCsv(row.text())
+                    : objectMapper.readValue(row.text(), ProductCreateUpdateRequestDTO.class);
+
+            Set<ConstraintViolation<ProductCreateUpdateRequestDTO>> violations = validator.validate(dto);
+            if (!violations.isEmpty()) {
+                return new ParsedRow(row.line(), null, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+            }
+            categoryDictionary.requireAll(dto.categoryIds());
+
+            Product product = new Product(dto.name(), dto.description(), dto.price(), dto.cost(), dto.currentStock());
+            product.setCategories(new HashSet<>());
+            for (Long categoryId : dto.categoryIds()) {
+                product.getCategories().add(categoryDictionary.toCategory(categoryId));
+            }
+            return new ParsedRow(row.line(), product, null);
+        } catch (Exception e) {
+            return new ParsedRow(row.line(), null, e.getMessage());
+        }
+    }
+
+    private ProductCreateUpdateRequestDTO fromCsv(String line) {
+        List<String> fields = parseCsvLine(line);
+        if (fields.size() < CSV_COLUMNS.size()) {
+            throw new IllegalArgumentException("Expected at least " + CSV_COLUMNS.size() + " columns but found " + fields.size());
+        }
+        Long[] categoryIds = fields.get(5).isBlank()
+                ? new Long[0]
+                : Arrays.stream(fields.get(5).split(";")).map(String::trim).map(Long::valueOf).toArray(Long[]::new);
+        return new ProductCreateUpdateRequestDTO(
+                fields.get(0),
+                fields.get(1),
+                decimal(fields.get(2)),
+                decimal(fields.get(3)),
+                Integer.valueOf(fields.get(4).trim()),
+                categoryIds);
+    }
+
+    // An empty field is a missing value, left for validation to report as such
+    private static BigDecimal decimal(String field) {
+        return field.isBlank() ? null : new BigDecimal(field.trim());
+    }
+
+    // An odd number of quotes so far means a quoted field is still open
+    private static boolean insideQuotes(CharSequence record) {
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            if (record.charAt(i) == '"') {
+                quoted = !quoted;
+            }
+        }
+        return quoted;
+    }
+
+    // RFC 4180 style: fields may be quoted, and a doubled quote inside a quoted field is a literal quote
+    private static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private class ImportProgress {
+        long totalRows;
+        long imported;
+        long failed;
+        final List<ProductImportResultDTO.RowError> errors = new ArrayList<>();
+
+        void reject(long line, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ProductImportResultDTO.RowError(line, message));
+            }
+        }
+    }
+}
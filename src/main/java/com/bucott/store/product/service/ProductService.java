@@ -1,9 +1,15 @@
 package com.bucott.store.product.service;
 
 import com.bucott.store.common.dto.PagedResponse;
+import com.bucott.store.product.dto.ProductBatchResponseDTO;
 import com.bucott.store.product.dto.ProductCreateUpdateRequestDTO;
 import com.bucott.store.product.dto.ProductCreateUpdateResponseDTO;
+import com.bucott.store.product.dto.ProductFacetsDTO;
 import com.bucott.store.product.dto.ProductInfoDTO;
+import com.bucott.store.product.dto.ProductLowStockDTO;
+import com.bucott.store.product.dto.ProductPatchRequestDTO;
+import com.bucott.store.product.dto.ProductQuery;
+import com.bucott.store.product.dto.ProductSuggestionDTO;
 import com.bucott.store.product.model.Product;
 
 import java.math.BigDecimal;
@@ -11,16 +17,24 @@ import java.util.List;
 
 public interface ProductService {
     PagedResponse<ProductInfoDTO> getAllProducts(int page, int size, String sortBy, String sortDir);
+    PagedResponse<ProductInfoDTO> getProductsByCursor(String cursor, int size, String sortBy, String sortDir);
     ProductInfoDTO getProductById(Long productId);
+    ProductBatchResponseDTO getProductsByIds(List<Long> productIds);
     ProductCreateUpdateResponseDTO createProduct(ProductCreateUpdateRequestDTO product);
-    ProductCreateUpdateResponseDTO updateProduct(Long productId, ProductCreateUpdateRequestDTO product);
+    // expectedVersion null updates whatever version is current
+    ProductCreateUpdateResponseDTO updateProduct(Long productId, ProductCreateUpdateRequestDTO product, Long expectedVersion);
+    ProductCreateUpdateResponseDTO patchProduct(Long productId, ProductPatchRequestDTO patch, Long expectedVersion);
     void deleteProduct(Long productId);
-    List<ProductInfoDTO> getProductsByCategory(Long categoryId);
-    List<ProductInfoDTO> searchProducts(String keyword);
-    List<ProductInfoDTO> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice);
-    List<ProductInfoDTO> getProductsByStockAvailability(boolean inStock);
-    List<ProductInfoDTO> getProductsByName(String name);
-    List<ProductInfoDTO> getProductsByDescription(String description);
-    List<ProductInfoDTO> getProductsByCategoryAndPriceRange(Long categoryId, Double minPrice, Double maxPrice);
+    PagedResponse<ProductInfoDTO> queryProducts(ProductQuery query, int page, int size, String sortBy, String sortDir);
+    ProductFacetsDTO getProductFacets(ProductQuery query);
+    PagedResponse<ProductInfoDTO> getProductsByCategory(Long categoryId, int page, int size);
+    PagedResponse<ProductInfoDTO> searchProducts(String keyword, int page, int size);
+    List<ProductSuggestionDTO> suggestProducts(String prefix, int limit);
+    PagedResponse<ProductInfoDTO> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, int page, int size);
+    PagedResponse<ProductInfoDTO> getProductsByStockAvailability(boolean inStock, int page, int size);
+    PagedResponse<ProductLowStockDTO> getLowStockReport(int page, int size);
+    PagedResponse<ProductInfoDTO> getProductsByName(String name, int page, int size);
+    PagedResponse<ProductInfoDTO> getProductsByDescription(String description, int page, int size);
+    PagedResponse<ProductInfoDTO> getProductsByCategoryAndPriceRange(Long categoryId, Double minPrice, Double maxPrice, int page, int size);
 
 }
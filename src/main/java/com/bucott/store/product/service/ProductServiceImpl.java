@@ -1,43 +1,115 @@
 package com.bucott.store.product.service;
 
 import com.bucott.store.common.dto.PagedResponse;
+import com.bucott.store.common.exception.InvalidInputException;
+import com.bucott.store.config.CacheConfig;
+import com.bucott.store.product.cache.ProductCacheInvalidator;
+import com.bucott.store.product.cache.ProductCategoryDictionary;
+import com.bucott.store.product.dto.ProductBatchResponseDTO;
 import com.bucott.store.product.dto.ProductCreateUpdateRequestDTO;
 import com.bucott.store.product.dto.ProductCreateUpdateResponseDTO;
+import com.bucott.store.product.dto.ProductFacetsDTO;
 import com.bucott.store.product.dto.ProductInfoDTO;
+import com.bucott.store.product.dto.ProductInfoRow;
+import com.bucott.store.product.dto.ProductLowStockDTO;
+import com.bucott.store.product.dto.ProductPatchRequestDTO;
+import com.bucott.store.product.dto.ProductQuery;
+import com.bucott.store.product.dto.ProductSuggestionDTO;
+import com.bucott.store.product.event.ProductChangedEvent;
 import com.bucott.store.product.exception.ProductNotFoundException;
+import com.bucott.store.product.exception.ProductVersionMismatchException;
+import com.bucott.store.product.index.ProductAttributeIndex;
 import com.bucott.store.product.mapper.ProductMapper;
 import com.bucott.store.product.model.Product;
 import com.bucott.store.product.model.ProductCategory;
 import com.bucott.store.product.repository.ProductCategoryRepository;
 import com.bucott.store.product.repository.ProductRepository;
+import com.bucott.store.product.search.ProductSearchIndex;
+import com.bucott.store.product.search.ProductSuggester;
+import com.bucott.store.product.stock.ProductStockViews;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductServiceImpl implements ProductService {
     private static final Logger log = LoggerFactory.getLogger(ProductServiceImpl.class);
+    private static final String DEFAULT_SORT = "productId";
+    private static final String DEFAULT_DIRECTION = "asc";
     private final ProductRepository productRepository;
     private final ProductCategoryRepository productCategoryRepository;
     private final ProductMapper productMapper;
-
-    public ProductServiceImpl(ProductRepository productRepository, ProductCategoryRepository productCategoryRepository, ProductMapper productMapper) {
+    private final ProductCategoryDictionary categoryDictionary;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSuggester productSuggester;
+    private final ProductAttributeIndex productAttributeIndex;
+    private final ProductStockViews productStockViews;
+    private final ProductCountCache productCountCache;
+    private final ProductCacheInvalidator cacheInvalidator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Cache productsCache;
+    private final int maxBatchSize;
+    private final int maxPageSize;
+    private final BigDecimal[] priceBuckets;
+
+    public ProductServiceImpl(ProductRepository productRepository, ProductCategoryRepository productCategoryRepository, ProductMapper productMapper,
+                              ProductCategoryDictionary categoryDictionary,
+                              ProductSearchIndex productSearchIndex, ProductSuggester productSuggester, ProductAttributeIndex productAttributeIndex,
+                              ProductStockViews productStockViews, ProductCountCache productCountCache,
+                              ProductCacheInvalidator cacheInvalidator, ApplicationEventPublisher eventPublisher,
+                              CacheManager cacheManager, @Value("${app.products.batch.max-ids:200}") int maxBatchSize,
+                              @Value("${app.products.query.max-page-size:100}") int maxPageSize,
+                              @Value("${app.products.facets.price-buckets:0,25,50,100,250,500,1000}") BigDecimal[] priceBuckets) {
         this.productRepository = productRepository;
         this.productCategoryRepository = productCategoryRepository;
         this.productMapper = productMapper;
+        this.categoryDictionary = categoryDictionary;
+        this.productSearchIndex = productSearchIndex;
+        this.productSuggester = productSuggester;
+        this.productAttributeIndex = productAttributeIndex;
+        this.productStockViews = productStockViews;
+        this.productCountCache = productCountCache;
+        this.cacheInvalidator = cacheInvalidator;
+        this.eventPublisher = eventPublisher;
+        this.productsCache = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+        this.maxBatchSize = maxBatchSize;
+        this.maxPageSize = maxPageSize;
+        this.priceBuckets = priceBuckets.clone();
+        Arrays.sort(this.priceBuckets);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public PagedResponse<ProductInfoDTO> getAllProducts(int page, int size, String sortBy, String sortDir) {
         log.info("Fetching paginated products: page={}, size={}, sortBy={}, sortDir={}", page, size, sortBy, sortDir);
         
@@ -46,7 +118,7 @@ public class ProductServiceImpl implements ProductService {
                 Sort.by(sortBy).ascending();
         
         Pageable pageable = PageRequest.of(page, size, sort);
-        Page<Product> productPage = productRepository.findAll(pageable);
+        Page<ProductInfoRow> productPage = productRepository.findAllInfo(pageable);
         
         List<ProductInfoDTO> productDTOs = productPage.getContent()
                 .stream()
@@ -63,6 +135,50 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public PagedResponse<ProductInfoDTO> getProductsByCursor(String cursor, int size, String sortBy, String sortDir) {
+        log.info("Fetching products by cursor: cursor={}, size={}, sortBy={}, sortDir={}", cursor, size, sortBy, sortDir);
+        if (size < 1) {
+            log.error("Invalid page size: {}", size);
+            throw new IllegalArgumentException("Page size must be greater than zero");
+        }
+
+        ScrollPosition position = ScrollPosition.keyset();
+        if (cursor != null && !cursor.isEmpty()) {
+            // The cursor carries the sort it was issued for, so later pages keep a stable order
+            ProductCursor decoded = ProductCursor.decode(cursor);
+            sortBy = decoded.sortBy();
+            sortDir = decoded.direction().name();
+            position = decoded.toScrollPosition();
+        }
+        ProductCursor.requireCursorSortable(sortBy);
+        Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+
+        Window<Product> window = productRepository.findAllBy(position, ProductCursor.sort(sortBy, direction), Limit.of(size));
+
+        List<ProductInfoDTO> productDTOs = window.getContent()
+                .stream()
+                .map(productMapper::toInfoDTO)
+                .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+            nextCursor = ProductCursor.from(sortBy, direction, last).encode();
+        }
+
+        return PagedResponse.ofCursor(
+                productDTOs,
+                size,
+                productCountCache.estimate(),
+                cursor == null || cursor.isEmpty(),
+                nextCursor
+        );
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.PRODUCTS_CACHE, key = "#productId", sync = true) // concurrent misses share one load
     public ProductInfoDTO getProductById(Long productId) {
         if (productId == null) {
             throw new IllegalArgumentException("Product ID cannot be null");
@@ -74,6 +190,61 @@ public class ProductServiceImpl implements ProductService {
         return productMapper.toInfoDTO(product);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ProductBatchResponseDTO getProductsByIds(List<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            log.error("Product IDs cannot be null or empty");
+            throw new InvalidInputException("At least one product ID is required");
+        }
+        LinkedHashSet<Long> requestedIds = new LinkedHashSet<>(productIds);
+        requestedIds.remove(null);
+        if (requestedIds.size() > maxBatchSize) {
+            log.error("Too many product IDs requested: {}", requestedIds.size());
+            throw new InvalidInputException("At most " + maxBatchSize + " product IDs can be requested at once");
+        }
+        log.info("Fetching {} products by ID", requestedIds.size());
+
+        // Serve what we can from the product cache, then load the rest in a single query
+        Map<Long, ProductInfoDTO> found = new HashMap<>();
+        List<Long> uncachedIds = new ArrayList<>();
+        for (Long productId : requestedIds) {
+            ProductInfoDTO cached = productsCache.get(productId, ProductInfoDTO.class);
+            if (cached != null) {
+                found.put(productId, cached);
+            } else {
+                uncachedIds.add(productId);
+            }
+        }
+        if (!uncachedIds.isEmpty()) {
+            long evictions = cacheInvalidator.evictions();
+            List<ProductInfoRow> rows = productRepository.findInfoByIdIn(uncachedIds);
+            for (ProductInfoRow row : rows) {
+                ProductInfoDTO product = productMapper.toInfoDTO(row);
+                found.put(product.productId(), product);
+                productsCache.putIfAbsent(product.productId(), product);
+            }
+            // A write may have been evicted between the load and the puts; take back what may be older than it
+            if (cacheInvalidator.evictions() != evictions) {
+                rows.forEach(row -> productsCache.evict(row.productId()));
+            }
+        }
+
+        List<ProductInfoDTO> products = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long productId : requestedIds) {
+            ProductInfoDTO product = found.get(productId);
+            if (product != null) {
+                products.add(product);
+            } else {
+                missingIds.add(productId);
+            }
+        }
+        log.info("Found {} of {} requested products ({} from cache)", products.size(), requestedIds.size(),
+                requestedIds.size() - uncachedIds.size());
+        return new ProductBatchResponseDTO(products, missingIds);
+    }
+
     @Override
     public ProductCreateUpdateResponseDTO createProduct(ProductCreateUpdateRequestDTO productDTO) {
         log.info("Creating new product: {}", productDTO);
@@ -96,12 +267,7 @@ public class ProductServiceImpl implements ProductService {
                 productDTO.currentStock()
         );
 
-        product.setCategories(new HashSet<>());
-        for (Long categoryId : productDTO.categoryIds()) {
-            ProductCategory category = productCategoryRepository.findById(categoryId)
-                    .orElseThrow(() -> new IllegalArgumentException("Invalid category ID: " + categoryId));
-            product.getCategories().add(category);
-        }
+        product.setCategories(resolveCategories(productDTO.categoryIds()));
 
         Product savedProduct = productRepository.save(product);
 
@@ -126,6 +292,8 @@ public class ProductServiceImpl implements ProductService {
         }
 
         log.info("Product created successfully with ID: {}", savedProduct.getProductId());
+        eventPublisher.publishEvent(ProductChangedEvent.created(
+                productMapper.toInfoDTO(savedProduct), productMapper.toCategoryIds(savedProduct)));
 
         return new ProductCreateUpdateResponseDTO(
                 savedProduct.getProductId(),
@@ -138,17 +306,14 @@ public class ProductServiceImpl implements ProductService {
                         .map(ProductCategory::getProductCategoryId)
                         .toArray(Long[]::new),
                 savedProduct.getCreatedAt().toString(),
-                savedProduct.getUpdatedAt().toString());
+                savedProduct.getUpdatedAt().toString(),
+                savedProduct.getVersion());
     }
 
     @Override
-    public ProductCreateUpdateResponseDTO updateProduct(Long productId, ProductCreateUpdateRequestDTO productDTO) {
-        log.info("Updating product with ID: {}", productId);
-
-        if (!productRepository.existsById(productId)) {
-            log.error("Product with ID {} not found for update", productId);
-            throw new ProductNotFoundException(productId);
-        }
+    @Transactional
+    public ProductCreateUpdateResponseDTO updateProduct(Long productId, ProductCreateUpdateRequestDTO productDTO, Long expectedVersion) {
+        log.info("Updating product with ID: {}, expected version: {}", productId, expectedVersion);
 
         if (productDTO.price() == null || productDTO.price().compareTo(BigDecimal.ZERO) <= 0) {
             log.error("Invalid product price: {}", productDTO.price());
@@ -160,37 +325,130 @@ public class ProductServiceImpl implements ProductService {
             throw new IllegalArgumentException("Current stock cannot be negative");
         }
 
-        Product product = new Product(
-                productDTO.name(),
-                productDTO.description(),
-                productDTO.price(),
-                productDTO.cost(),
-                productDTO.currentStock()
-        );
+        Product product = productRepository.findById(productId).orElseThrow(() -> {
+            log.error("Product with ID {} not found for update", productId);
+            return new ProductNotFoundException(productId);
+        });
+        if (expectedVersion != null && !expectedVersion.equals(product.getVersion())) {
+            log.error("Product with ID {} is at version {}, not the expected {}", productId, product.getVersion(), expectedVersion);
+            throw new ProductVersionMismatchException(productId, expectedVersion, product.getVersion());
+        }
+
+        // Update the managed row in place: createdAt survives, and the version check at flush
+        // rejects the write if another one landed after the read
+        product.setName(productDTO.name());
+        product.setDescription(productDTO.description());
+        product.setPrice(productDTO.price());
+        product.setCost(productDTO.cost());
+        product.setCurrentStock(productDTO.currentStock());
+        product.setCategories(resolveCategories(productDTO.categoryIds()));
+
+        // Flush now so the response carries the new version and update time
+        Product updatedProduct = productRepository.saveAndFlush(product);
+        log.info("Product updated successfully with ID: {}, version: {}", updatedProduct.getProductId(), updatedProduct.getVersion());
+        eventPublisher.publishEvent(ProductChangedEvent.updated(
+                productMapper.toInfoDTO(updatedProduct), productMapper.toCategoryIds(updatedProduct)));
+
+        return toResponseDTO(updatedProduct);
+    }
+
+    @Override
+    @Transactional
+    public ProductCreateUpdateResponseDTO patchProduct(Long productId, ProductPatchRequestDTO patch, Long expectedVersion) {
+        log.info("Patching product with ID: {}, expected version: {}", productId, expectedVersion);
 
-        product.setProductId(productId);
-        product.setCategories(new HashSet<>());
-        for (Long categoryId : productDTO.categoryIds()) {
-            ProductCategory category = productCategoryRepository.findById(categoryId)
-                    .orElseThrow(() -> new IllegalArgumentException("Invalid category ID: " + categoryId));
-            product.getCategories().add(category);
+        Map<String, Object> changes = new LinkedHashMap<>();
+        if (patch.name() != null) {
+            changes.put("name", patch.name());
         }
+        if (patch.description() != null) {
+            changes.put("description", patch.description());
+        }
+        if (patch.price() != null) {
+            changes.put("price", patch.price());
+        }
+        if (patch.cost() != null) {
+            changes.put("cost", patch.cost());
+        }
+        if (patch.currentStock() != null) {
+            changes.put("currentStock", patch.currentStock());
+        }
+        if (changes.isEmpty() && patch.categoryIds() == null) {
+            log.error("Empty patch for product with ID {}", productId);
+            throw new InvalidInputException("A product patch must set at least one field");
+        }
+
+        Product product;
+        if (patch.categoryIds() == null) {
+            // One UPDATE of just the supplied columns, without reading the row first
+            if (productRepository.patch(productId, changes, expectedVersion) == 0) {
+                throw missingOrStale(productId, expectedVersion);
+            }
+            product = productRepository.findWithCategoriesById(productId)
+                    .orElseThrow(() -> new ProductNotFoundException(productId));
+        } else {
+            // Categories live in the join table, so they go through the managed entity; dynamic
+            // update still keeps the row UPDATE to the columns that changed
+            product = productRepository.findWithCategoriesById(productId).orElseThrow(() -> {
+                log.error("Product with ID {} not found for patch", productId);
+                return new ProductNotFoundException(productId);
+            });
+            if (expectedVersion != null && !expectedVersion.equals(product.getVersion())) {
+                log.error("Product with ID {} is at version {}, not the expected {}", productId, product.getVersion(), expectedVersion);
+                throw new ProductVersionMismatchException(productId, expectedVersion, product.getVersion());
+            }
+            if (patch.name() != null) {
+                product.setName(patch.name());
+            }
+            if (patch.description() != null) {
+                product.setDescription(patch.description());
+            }
+            if (patch.price() != null) {
+                product.setPrice(patch.price());
+            }
+            if (patch.cost() != null) {
+                product.setCost(patch.cost());
+            }
+            if (patch.currentStock() != null) {
+                product.setCurrentStock(patch.currentStock());
+            }
+            product.setCategories(resolveCategories(patch.categoryIds()));
+            product = productRepository.saveAndFlush(product);
+        }
+
+        log.info("Product patched successfully with ID: {}, fields: {}, version: {}", productId, changes.keySet(), product.getVersion());
+        eventPublisher.publishEvent(ProductChangedEvent.updated(
+                productMapper.toInfoDTO(product), productMapper.toCategoryIds(product)));
+        return toResponseDTO(product);
+    }
 
-        Product updatedProduct = productRepository.save(product);
-        log.info("Product updated successfully with ID: {}", updatedProduct.getProductId());
+    // Tells a missing product from one a conditional write found at another version
+    private RuntimeException missingOrStale(Long productId, Long expectedVersion) {
+        return productRepository.findById(productId)
+                .<RuntimeException>map(product -> {
+                    log.error("Product with ID {} is at version {}, not the expected {}", productId, product.getVersion(), expectedVersion);
+                    return new ProductVersionMismatchException(productId, expectedVersion, product.getVersion());
+                })
+                .orElseGet(() -> {
+                    log.error("Product with ID {} not found for patch", productId);
+                    return new ProductNotFoundException(productId);
+                });
+    }
 
+    private ProductCreateUpdateResponseDTO toResponseDTO(Product product) {
         return new ProductCreateUpdateResponseDTO(
-                updatedProduct.getProductId(),
-                updatedProduct.getName(),
-                updatedProduct.getDescription(),
-                updatedProduct.getPrice().doubleValue(),
-                updatedProduct.getCost().doubleValue(),
-                updatedProduct.getCurrentStock(),
-                updatedProduct.getCategories().stream()
+                product.getProductId(),
+                product.getName(),
+                product.getDescription(),
+                product.getPrice().doubleValue(),
+                product.getCost().doubleValue(),
+                product.getCurrentStock(),
+                product.getCategories().stream()
                         .map(ProductCategory::getProductCategoryId)
                         .toArray(Long[]::new),
-                updatedProduct.getCreatedAt().toString(),
-                updatedProduct.getUpdatedAt().toString());
+                product.getCreatedAt().toString(),
+                product.getUpdatedAt().toString(),
+                product.getVersion());
     }
 
     @Override
@@ -202,125 +460,361 @@ public class ProductServiceImpl implements ProductService {
             throw new ProductNotFoundException(productId);
         }
         productRepository.deleteById(productId);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(productId));
     }
 
     @Override
-    public List<ProductInfoDTO> getProductsByCategory(Long categoryId) {
+    @Transactional(readOnly = true)
+    public PagedResponse<ProductInfoDTO> queryProducts(ProductQuery query, int page, int size, String sortBy, String sortDir) {
+        log.info("Querying products: {}, page={}, size={}, sortBy={}, sortDir={}", query, page, size, sortBy, sortDir);
+        requirePage(page, size);
+        validateQuery(query);
+        ProductCursor.requireSortable(sortBy);
+        Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        // productId breaks ties so that pages never overlap or skip rows
+        Pageable pageable = PageRequest.of(page, size, ProductCursor.sort(sortBy, direction));
+
+        String textPattern = likePattern(query.text());
+        String namePattern = likePattern(query.name());
+        String descriptionPattern = likePattern(query.description());
+        if (textPattern == null && namePattern == null && descriptionPattern == null && query.inStock() == null
+                && (sortBy.equals(DEFAULT_SORT) || sortBy.equals("price")) && productAttributeIndex.isReady()) {
+            return queryAttributeIndex(query, page, size, sortBy, direction);
+        }
+
+        List<Object[]> rows = productRepository.findInfoByQuery(query.categoryId(), query.minPrice(), query.maxPrice(),
+                query.inStock(), textPattern, namePattern, descriptionPattern, pageable);
+
+        long totalElements;
+        if (!rows.isEmpty()) {
+            totalElements = (Long) rows.get(0)[1];
+        } else if (page == 0) {
+            totalElements = 0;
+        } else {
+            // Past the last match the window total is not available, so count separately
+            totalElements = productRepository.countByQuery(query.categoryId(), query.minPrice(), query.maxPrice(),
+                    query.inStock(), textPattern, namePattern, descriptionPattern);
+        }
+
+        List<ProductInfoDTO> productDTOs = rows.stream()
+                .map(row -> productMapper.toInfoDTO((ProductInfoRow) row[0]))
+                .collect(Collectors.toList());
+        int totalPages = (int) ((totalElements + size - 1) / size);
+        log.info("Found {} products matching query, returning page {} of {}", totalElements, page, totalPages);
+        return PagedResponse.of(productDTOs, page, size, totalElements, totalPages);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PagedResponse<ProductInfoDTO> getProductsByCategory(Long categoryId, int page, int size) {
         log.info("Fetching prodcuts by category ID: {}", categoryId);
-        List<Product> products = productRepository.findByCategories_ProductCategoryId(categoryId);
+        PagedResponse<ProductInfoDTO> products = queryProducts(
+                ProductQuery.builder().categoryId(categoryId).build(), page, size, DEFAULT_SORT, DEFAULT_DIRECTION);
 
-        if (products.isEmpty()) {
+        if (products.getTotalElements() == 0) {
             log.warn("No products found for category ID: {}", categoryId);
             throw new ProductNotFoundException("No products found for category ID: " + categoryId);
         }
-        log.info("Found {} products for category ID: {}", products.size(), categoryId);
-        return convertToProductInfoDTOList(products);
+        return products;
+    }
+
+    @Override
+    public List<ProductSuggestionDTO> suggestProducts(String prefix, int limit) {
+        if (limit < 1 || limit > productSuggester.maxSuggestions()) {
+            throw new InvalidInputException("Limit must be between 1 and " + productSuggester.maxSuggestions());
+        }
+        return productSuggester.suggest(prefix, limit);
     }
 
     @Override
-    public List<ProductInfoDTO> searchProducts(String keyword) {
-        log.info("Searching products with keyword: {}", keyword);
-        List<Product> products = productRepository.findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(keyword, keyword);
-        if (products.isEmpty()) {
+    public PagedResponse<ProductInfoDTO> searchProducts(String keyword, int page, int size) {
+        log.info("Searching products with keyword: {}, page={}, size={}", keyword, page, size);
+        if (keyword == null || keyword.isBlank()) {
+            log.error("Keyword cannot be null or empty");
+            throw new IllegalArgumentException("Keyword cannot be null or empty");
+        }
+        requirePage(page, size);
+
+        if (!productSearchIndex.isReady()) {
+            // Until the index is built at startup, plain substring matching in the database stands in
+            PagedResponse<ProductInfoDTO> products = queryProducts(
+                    ProductQuery.builder().text(keyword).build(), page, size, DEFAULT_SORT, DEFAULT_DIRECTION);
+            if (products.getTotalElements() == 0) {
+                log.warn("No products found for keyword: {}", keyword);
+                throw new ProductNotFoundException("No products found for keyword: " + keyword);
+            }
+            return products;
+        }
+        ProductSearchIndex.SearchResult result = productSearchIndex.search(keyword, offset(page, size), size);
+        if (result.totalHits() == 0) {
             log.warn("No products found for keyword: {}", keyword);
             throw new ProductNotFoundException("No products found for keyword: " + keyword);
         }
-        log.info("Found {} products for keyword: {}", products.size(), keyword);
-        return convertToProductInfoDTOList(products);
+        log.info("Found {} products for keyword: {}", result.totalHits(), keyword);
+        return toPage(result, page, size);
+    }
+
+    private static PagedResponse<ProductInfoDTO> toPage(ProductSearchIndex.SearchResult result, int page, int size) {
+        List<ProductInfoDTO> productDTOs = result.hits()
+                .stream()
+                .map(ProductSearchIndex.SearchHit::product)
+                .collect(Collectors.toList());
+        int totalPages = (result.totalHits() + size - 1) / size;
+        return PagedResponse.of(productDTOs, page, size, result.totalHits(), totalPages);
     }
 
     @Override
-    public List<ProductInfoDTO> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+    @Transactional(readOnly = true)
+    public PagedResponse<ProductInfoDTO> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, int page, int size) {
         log.info("Fetching products by price range: {} - {}", minPrice, maxPrice);
         if (minPrice == null || maxPrice == null || minPrice.compareTo(BigDecimal.ZERO) < 0 || maxPrice.compareTo(BigDecimal.ZERO) < 0 || minPrice.compareTo(maxPrice) > 0) {
             log.error("Invalid price range: {} - {}", minPrice, maxPrice);
             throw new IllegalArgumentException("Invalid price range provided");
         }
-        List<Product> products = productRepository.findByPriceBetween(minPrice, maxPrice);
-        if (products.isEmpty()) {
+        PagedResponse<ProductInfoDTO> products = queryProducts(
+                ProductQuery.builder().minPrice(minPrice).maxPrice(maxPrice).build(), page, size, DEFAULT_SORT, DEFAULT_DIRECTION);
+        if (products.getTotalElements() == 0) {
             log.warn("No products found in the price range: {} - {}", minPrice, maxPrice);
             throw new ProductNotFoundException("No products found in the price range: " + minPrice + " - " + maxPrice);
         }
-        log.info("Found {} products in the price range: {} - {}", products.size(), minPrice, maxPrice);
-        return convertToProductInfoDTOList(products);
+        return products;
     }
 
     @Override
-    public List<ProductInfoDTO> getProductsByStockAvailability(boolean inStock) {
-        if (inStock) {
-            log.info("Fetching products that are in stock");
-            List<Product> products = productRepository.findByCurrentStockGreaterThan(0);
-            if (products.isEmpty()) {
-                log.warn("No products found that are in stock");
-                throw new ProductNotFoundException("No products found that are in stock");
-            }
-            log.info("Found {} products that are in stock", products.size());
-            return convertToProductInfoDTOList(products);
+    @Transactional(readOnly = true)
+    public PagedResponse<ProductInfoDTO> getProductsByStockAvailability(boolean inStock, int page, int size) {
+        String availability = inStock ? "in stock" : "out of stock";
+        log.info("Fetching products that are {}", availability);
+        PagedResponse<ProductInfoDTO> products;
+        if (productStockViews.isReady()) {
+            requirePage(page, size);
+            ProductStockViews.Page<Long> ids = productStockViews.findByAvailability(inStock, offset(page, size), size);
+            products = PagedResponse.of(loadInOrder(ids.items()), page, size, ids.total(), totalPages(ids.total(), size));
         } else {
-            log.info("Fetching products that are out of stock");
-            List<Product> products = productRepository.findByCurrentStockLessThanEqual(0);
-            if (products.isEmpty()) {
-                log.warn("No products found that are out of stock");
-                throw new ProductNotFoundException("No products found that are out of stock");
+            products = queryProducts(ProductQuery.builder().inStock(inStock).build(), page, size, DEFAULT_SORT, DEFAULT_DIRECTION);
+        }
+        if (products.getTotalElements() == 0) {
+            log.warn("No products found that are {}", availability);
+            throw new ProductNotFoundException("No products found that are " + availability);
+        }
+        log.info("Found {} products that are {}", products.getTotalElements(), availability);
+        return products;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PagedResponse<ProductLowStockDTO> getLowStockReport(int page, int size) {
+        log.info("Fetching low stock report: page={}, size={}", page, size);
+        requirePage(page, size);
+        ProductStockViews.Page<ProductStockViews.StockLevel> levels = productStockViews.findLowStock(offset(page, size), size);
+
+        List<Long> ids = levels.items().stream().map(ProductStockViews.StockLevel::productId).toList();
+        Map<Long, ProductInfoDTO> products = new HashMap<>();
+        loadInOrder(ids).forEach(product -> products.put(product.productId(), product));
+
+        List<ProductLowStockDTO> report = new ArrayList<>(levels.items().size());
+        for (ProductStockViews.StockLevel level : levels.items()) {
+            ProductInfoDTO product = products.get(level.productId());
+            if (product != null) {
+                report.add(new ProductLowStockDTO(product.productId(), product.name(), level.stock(), level.threshold(),
+                        level.threshold() - level.stock() + 1, product.categoryNames()));
             }
-            log.info("Found {} products that are out of stock", products.size());
-            return convertToProductInfoDTOList(products);
         }
+        log.info("Found {} products low on stock", levels.total());
+        return PagedResponse.of(report, page, size, levels.total(), totalPages(levels.total(), size));
     }
 
     @Override
-    public List<ProductInfoDTO> getProductsByDescription(String description) {
+    @Transactional(readOnly = true)
+    public PagedResponse<ProductInfoDTO> getProductsByDescription(String description, int page, int size) {
         log.info("Fetching products by description containing: {}", description);
         if (description == null || description.isEmpty()) {
             log.error("Description cannot be null or empty");
             throw new IllegalArgumentException("Description cannot be null or empty");
         }
-        List<Product> products = productRepository.findByDescriptionContainingIgnoreCase(description);
-        if (products.isEmpty()) {
-            log.warn("No products found with description containing: {}", description);
-            throw new ProductNotFoundException("No products found with description containing: " + description);
+        PagedResponse<ProductInfoDTO> products = queryProducts(
+                ProductQuery.builder().description(description).build(), page, size, DEFAULT_SORT, DEFAULT_DIRECTION);
+        if (products.getTotalElements() == 0) {
+            // Nothing contains the text as typed; answer with the closest spellings instead of a 404
+            ProductSearchIndex.SearchResult similar = productSearchIndex.search(
+                    description, ProductSearchIndex.Field.DESCRIPTION, offset(page, size), size);
+            if (similar.totalHits() == 0) {
+                log.warn("No products found with description containing: {}", description);
+                throw new ProductNotFoundException("No products found with description containing: " + description);
+            }
+            log.info("Found {} products with descriptions similar to: {}", similar.totalHits(), description);
+            return toPage(similar, page, size);
         }
-        log.info("Found {} products with description containing: {}", products.size(), description);
-        return convertToProductInfoDTOList(products);
+        return products;
     }
 
     @Override
-    public List<ProductInfoDTO> getProductsByCategoryAndPriceRange(Long categoryId, Double minPrice, Double maxPrice) {
+    @Transactional(readOnly = true)
+    public PagedResponse<ProductInfoDTO> getProductsByCategoryAndPriceRange(Long categoryId, Double minPrice, Double maxPrice, int page, int size) {
         log.info("Fetching products by category ID: {} and price range: {} - {}", categoryId, minPrice, maxPrice);
         if (categoryId == null || minPrice == null || maxPrice == null || minPrice < 0 || maxPrice < 0 || minPrice > maxPrice) {
             log.error("Invalid parameters provided for category ID and price range");
             throw new IllegalArgumentException("Invalid parameters provided for category ID and price range");
         }
-        List<Product> products = productRepository.findByCategories_ProductCategoryIdAndPriceBetween(
-                categoryId, BigDecimal.valueOf(minPrice), BigDecimal.valueOf(maxPrice));
-        if (products.isEmpty()) {
+        PagedResponse<ProductInfoDTO> products = queryProducts(
+                ProductQuery.builder()
+                        .categoryId(categoryId)
+                        .minPrice(BigDecimal.valueOf(minPrice))
+                        .maxPrice(BigDecimal.valueOf(maxPrice))
+                        .build(),
+                page, size, DEFAULT_SORT, DEFAULT_DIRECTION);
+        if (products.getTotalElements() == 0) {
             log.warn("No products found for category ID: {} and price range: {} - {}", categoryId, minPrice, maxPrice);
             throw new ProductNotFoundException("No products found for category ID: " + categoryId + " and price range: " + minPrice + " - " + maxPrice);
         }
-        log.info("Found {} products for category ID: {} and price range: {} - {}", products.size(), categoryId, minPrice, maxPrice);
-        return convertToProductInfoDTOList(products);
+        return products;
     }
 
     @Override
-    public List<ProductInfoDTO> getProductsByName(String name) {
+    @Transactional(readOnly = true)
+    public PagedResponse<ProductInfoDTO> getProductsByName(String name, int page, int size) {
         log.info("Fetching products by name containing: {}", name);
         if (name == null || name.isEmpty()) {
             log.error("Name cannot be null or empty");
             throw new IllegalArgumentException("Name cannot be null or empty");
         }
-        List<Product> products = productRepository.findByNameContainingIgnoreCase(name);
-        if (products.isEmpty()) {
-            log.warn("No products found with name containing: {}", name);
-            throw new ProductNotFoundException("No products found with name containing: " + name);
+        PagedResponse<ProductInfoDTO> products = queryProducts(
+                ProductQuery.builder().name(name).build(), page, size, DEFAULT_SORT, DEFAULT_DIRECTION);
+        if (products.getTotalElements() == 0) {
+            ProductSearchIndex.SearchResult similar = productSearchIndex.search(
+                    name, ProductSearchIndex.Field.NAME, offset(page, size), size);
+            if (similar.totalHits() == 0) {
+                log.warn("No products found with name containing: {}", name);
+                throw new ProductNotFoundException("No products found with name containing: " + name);
+            }
+            log.info("Found {} products with names similar to: {}", similar.totalHits(), name);
+            return toPage(similar, page, size);
         }
-        log.info("Found {} products with name containing: {}", products.size(), name);
-        return convertToProductInfoDTOList(products);
+        return products;
     }
 
-    private List<ProductInfoDTO> convertToProductInfoDTOList(List<Product> products) {
-        return products.stream()
-                .map(productMapper::toInfoDTO)
-                .collect(Collectors.toList());
+    @Override
+    @Transactional(readOnly = true)
+    public ProductFacetsDTO getProductFacets(ProductQuery query) {
+        log.info("Computing facets for product query: {}", query);
+        validateQuery(query);
+
+        // Text filters are applied by the database, everything else by the attribute index
+        String textPattern = likePattern(query.text());
+        String namePattern = likePattern(query.name());
+        String descriptionPattern = likePattern(query.description());
+        Set<Long> candidateIds = null;
+        if (textPattern != null || namePattern != null || descriptionPattern != null) {
+            candidateIds = new HashSet<>(productRepository.findIdsByText(textPattern, namePattern, descriptionPattern));
+        }
+        Long minCents = query.minPrice() != null ? ProductAttributeIndex.toCents(query.minPrice(), RoundingMode.CEILING) : null;
+        Long maxCents = query.maxPrice() != null ? ProductAttributeIndex.toCents(query.maxPrice(), RoundingMode.FLOOR) : null;
+        long[] bucketBoundsCents = Arrays.stream(priceBuckets)
+                .mapToLong(bound -> ProductAttributeIndex.toCents(bound, RoundingMode.CEILING))
+                .toArray();
+        ProductAttributeIndex.Facets facets = productAttributeIndex.facets(candidateIds, query.categoryId(),
+                minCents, maxCents, query.inStock(), bucketBoundsCents);
+
+        List<ProductFacetsDTO.CategoryCount> categories = new ArrayList<>();
+        categoryDictionary.all().forEach((categoryId, categoryName) -> categories.add(new ProductFacetsDTO.CategoryCount(
+                categoryId, categoryName, facets.categoryCounts().getOrDefault(categoryId, 0L))));
+        categories.sort(Comparator.comparingLong(ProductFacetsDTO.CategoryCount::count).reversed()
+                .thenComparing(ProductFacetsDTO.CategoryCount::categoryId));
+
+        List<ProductFacetsDTO.PriceBucket> priceHistogram = new ArrayList<>(priceBuckets.length);
+        for (int i = 0; i < priceBuckets.length; i++) {
+            BigDecimal to = i + 1 < priceBuckets.length ? priceBuckets[i + 1] : null;
+            priceHistogram.add(new ProductFacetsDTO.PriceBucket(priceBuckets[i], to, facets.priceBucketCounts()[i]));
+        }
+        return new ProductFacetsDTO(categories, facets.inStock(), facets.outOfStock(), priceHistogram);
+    }
+
+    private void requirePage(int page, int size) {
+        if (page < 0 || size < 1 || size > maxPageSize) {
+            log.error("Invalid pagination parameters: page={}, size={}", page, size);
+            throw new InvalidInputException("Page must not be negative and size must be between 1 and " + maxPageSize);
+        }
+        if ((long) page * size > Integer.MAX_VALUE) {
+            log.error("Page offset out of range: page={}, size={}", page, size);
+            throw new InvalidInputException("Page is too far out, the offset must fit in " + Integer.MAX_VALUE);
+        }
+    }
+
+    // Only for pages that passed requirePage, whose offsets fit in an int
+    private static int offset(int page, int size) {
+        return Math.toIntExact((long) page * size);
+    }
+
+    private static int totalPages(long totalElements, int size) {
+        return (int) ((totalElements + size - 1) / size);
+    }
+
+    // Loads products through the cached batch lookup, keeping the given order
+    private List<ProductInfoDTO> loadInOrder(List<Long> productIds) {
+        return productIds.isEmpty() ? List.of() : getProductsByIds(productIds).products();
+    }
+
+    private void validateQuery(ProductQuery query) {
+        if ((query.minPrice() != null && query.minPrice().signum() < 0)
+                || (query.maxPrice() != null && query.maxPrice().signum() < 0)
+                || (query.minPrice() != null && query.maxPrice() != null && query.minPrice().compareTo(query.maxPrice()) > 0)) {
+            log.error("Invalid price range: {} - {}", query.minPrice(), query.maxPrice());
+            throw new InvalidInputException("Invalid price range provided");
+        }
+        if (query.categoryId() != null) {
+            requireCategory(query.categoryId());
+        }
+    }
+
+    // Category and price filters are answered by the attribute index; only the page itself is loaded
+    private PagedResponse<ProductInfoDTO> queryAttributeIndex(ProductQuery query, int page, int size, String sortBy, Sort.Direction direction) {
+        Long minCents = query.minPrice() != null ? ProductAttributeIndex.toCents(query.minPrice(), RoundingMode.CEILING) : null;
+        Long maxCents = query.maxPrice() != null ? ProductAttributeIndex.toCents(query.maxPrice(), RoundingMode.FLOOR) : null;
+        long[] ids = productAttributeIndex.findIds(query.categoryId(), minCents, maxCents);
+        if (sortBy.equals(DEFAULT_SORT)) {
+            Arrays.sort(ids);
+        }
+
+        List<Long> pageIds = new ArrayList<>(size);
+        long offset = (long) page * size;
+        for (long i = offset; i < Math.min(offset + size, ids.length); i++) {
+            int index = (int) i;
+            pageIds.add(direction.isAscending() ? ids[index] : ids[ids.length - 1 - index]);
+        }
+        List<ProductInfoDTO> productDTOs = loadInOrder(pageIds);
+
+        int totalPages = totalPages(ids.length, size);
+        log.info("Found {} products matching query in the attribute index, returning page {} of {}", ids.length, page, totalPages);
+        return PagedResponse.of(productDTOs, page, size, ids.length, totalPages);
+    }
+
+    // Matches the value literally: its own %, _ and \ are escaped for the queries' ESCAPE '\'
+    private static String likePattern(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String literal = value.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + literal + "%";
+    }
+
+    private void requireCategory(Long categoryId) {
+        if (!categoryDictionary.contains(categoryId)) {
+            log.warn("Product category with ID {} not found", categoryId);
+            throw new ProductNotFoundException("Product category with ID " + categoryId + " not found");
+        }
+    }
+
+    private Set<ProductCategory> resolveCategories(Long[] categoryIds) {
+        // Resolved from the category dictionary instead of a select per category
+        categoryDictionary.requireAll(categoryIds);
+        Set<ProductCategory> categories = new HashSet<>();
+        for (Long categoryId : categoryIds) {
+            categories.add(categoryDictionary.toCategory(categoryId));
+        }
+        return categories;
     }
 }
 
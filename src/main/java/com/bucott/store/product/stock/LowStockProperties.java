@@ -0,0 +1,30 @@
+package com.bucott.store.product.stock;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+
+/**
+ * Low-stock thresholds, e.g. {@code app.products.low-stock.default-threshold=10} and
+ * {@code app.products.low-stock.category-thresholds.3=25}. A product in several categories
+ * uses the highest threshold among them.
+ */
+@ConfigurationProperties(prefix = "app.products.low-stock")
+public record LowStockProperties(Integer defaultThreshold, Map<Long, Integer> categoryThresholds) {
+
+    public LowStockProperties {
+        defaultThreshold = defaultThreshold != null ? defaultThreshold : 10;
+        categoryThresholds = categoryThresholds != null ? Map.copyOf(categoryThresholds) : Map.of();
+    }
+
+    public int thresholdFor(Iterable<Long> categoryIds) {
+        int threshold = -1;
+        for (Long categoryId : categoryIds) {
+            Integer categoryThreshold = categoryThresholds.get(categoryId);
+            if (categoryThreshold != null) {
+                threshold = Math.max(threshold, categoryThreshold);
+            }
+        }
+        return threshold >= 0 ? threshold : defaultThreshold;
+    }
+}
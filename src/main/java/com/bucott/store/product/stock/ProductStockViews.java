@@ -0,0 +1,181 @@
+package com.bucott.store.product.stock;
+
+import com.bucott.store.product.dto.ProductAttributeRow;
+import com.bucott.store.product.event.ProductChangedEvent;
+import com.bucott.store.product.event.ProductStockChangedEvent;
+import com.bucott.store.product.event.ProductsImportedEvent;
+import com.bucott.store.product.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-stock, out-of-stock and low-stock membership kept in memory and moved between on every
+ * stock change, so availability lookups and the replenishment report never scan the product table.
+ * Low stock means at or below the product's threshold, so it includes out-of-stock products.
+ */
+@Component
+@EnableConfigurationProperties(LowStockProperties.class)
+public class ProductStockViews {
+    private static final Logger log = LoggerFactory.getLogger(ProductStockViews.class);
+
+    // Most urgent first: lowest stock, then the product furthest below its threshold
+    private static final Comparator<StockLevel> URGENCY = Comparator.comparingInt(StockLevel::stock)
+            .thenComparing(Comparator.comparingInt(StockLevel::threshold).reversed())
+            .thenComparingLong(StockLevel::productId);
+
+    private final ProductRepository productRepository;
+    private final LowStockProperties lowStockProperties;
+
+    private final Map<Long, StockLevel> levels = new ConcurrentHashMap<>();
+    private final NavigableSet<Long> inStock = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Long> outOfStock = new ConcurrentSkipListSet<>();
+    private final NavigableSet<StockLevel> lowStock = new ConcurrentSkipListSet<>(URGENCY);
+    // Skip list sizes are linear to compute, so the writer keeps the totals
+    private final AtomicInteger inStockCount = new AtomicInteger();
+    private final AtomicInteger outOfStockCount = new AtomicInteger();
+    private final AtomicInteger lowStockCount = new AtomicInteger();
+    private volatile boolean ready;
+
+    public ProductStockViews(ProductRepository productRepository, LowStockProperties lowStockProperties) {
+        this.productRepository = productRepository;
+        this.lowStockProperties = lowStockProperties;
+    }
+
+    public record StockLevel(long productId, int stock, int threshold) {
+        boolean isInStock() {
+            return stock > 0;
+        }
+
+        boolean isLow() {
+            return stock <= threshold;
+        }
+    }
+
+    public record Page<T>(List<T> items, long total) { }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        Map<Long, Integer> stocks = new HashMap<>();
+        Map<Long, Set<Long>> categories = new HashMap<>();
+        for (ProductAttributeRow row : productRepository.findAllAttributes()) {
+            stocks.put(row.productId(), row.currentStock());
+            Set<Long> categoryIds = categories.computeIfAbsent(row.productId(), id -> new HashSet<>());
+            if (row.categoryId() != null) {
+                categoryIds.add(row.categoryId());
+            }
+        }
+
+        levels.clear();
+        inStock.clear();
+        outOfStock.clear();
+        lowStock.clear();
+        inStockCount.set(0);
+        outOfStockCount.set(0);
+        lowStockCount.set(0);
+        stocks.forEach((productId, stock) -> add(new StockLevel(productId, stock,
+                lowStockProperties.thresholdFor(categories.get(productId)))));
+        ready = true;
+        log.info("Built stock views: {} in stock, {} out of stock, {} low on stock",
+                inStockCount.get(), outOfStockCount.get(), lowStockCount.get());
+    }
+
+    // After commit, so the views never count stock a rollback takes back
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        apply(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductsImported(ProductsImportedEvent event) {
+        event.products().forEach(this::apply);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductStockChanged(ProductStockChangedEvent event) {
+        event.products().forEach(this::apply);
+    }
+
+    private void apply(ProductChangedEvent event) {
+        StockLevel previous = levels.get(event.productId());
+        if (previous != null) {
+            remove(previous);
+        }
+        if (!event.isDeletion()) {
+            add(new StockLevel(event.productId(), event.product().currentStock(),
+                    lowStockProperties.thresholdFor(event.categoryIds())));
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Page<Long> findByAvailability(boolean available, int offset, int limit) {
+        NavigableSet<Long> view = available ? inStock : outOfStock;
+        long total = (available ? inStockCount : outOfStockCount).get();
+        return new Page<>(slice(view.iterator(), offset, limit), total);
+    }
+
+    public Page<StockLevel> findLowStock(int offset, int limit) {
+        return new Page<>(slice(lowStock.iterator(), offset, limit), lowStockCount.get());
+    }
+
+    private void add(StockLevel level) {
+        levels.put(level.productId(), level);
+        if (level.isInStock()) {
+            inStock.add(level.productId());
+            inStockCount.incrementAndGet();
+        } else {
+            outOfStock.add(level.productId());
+            outOfStockCount.incrementAndGet();
+        }
+        if (level.isLow()) {
+            lowStock.add(level);
+            lowStockCount.incrementAndGet();
+        }
+    }
+
+    private void remove(StockLevel level) {
+        levels.remove(level.productId());
+        if (inStock.remove(level.productId())) {
+            inStockCount.decrementAndGet();
+        }
+        if (outOfStock.remove(level.productId())) {
+            outOfStockCount.decrementAndGet();
+        }
+        if (lowStock.remove(level)) {
+            lowStockCount.decrementAndGet();
+        }
+    }
+
+    private static <T> List<T> slice(Iterator<T> iterator, int offset, int limit) {
+        for (int skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+            iterator.next();
+        }
+        List<T> items = new ArrayList<>(limit);
+        while (items.size() < limit && iterator.hasNext()) {
+            items.add(iterator.next());
+        }
+        return items;
+    }
+}
@@ -0,0 +1,16 @@
+package com.bucott.store.security.cache;
+
+import java.time.Instant;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * A bearer token whose signature has been checked, with its claims. Cached until
+ * {@code expiresAt}, the token's own {@code exp}, and never longer.
+ */
+public record VerifiedToken(
+    String username,
+    Claims claims,
+    Instant expiresAt
+) {
+}
@@ -0,0 +1,98 @@
+package com.bucott.store.security.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import com.bucott.store.config.CacheConfig;
+import com.bucott.store.security.util.JwtUtil;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+
+/**
+ * Remembers bearer tokens that passed signature verification, so a client reusing its token
+ * is verified once rather than on every request. Entries are keyed by a SHA-256 of the token,
+ * so raw tokens are not kept in memory, and expire with the token itself.
+ * <p>
+ * Revoked tokens are remembered until they would have expired, however many there are, and are
+ * refused from then on. Revocations live in this node's memory only: other nodes still accept
+ * the token, and a restart forgets them.
+ */
+@Component
+public class VerifiedTokenCache {
+    private static final Logger log = LoggerFactory.getLogger(VerifiedTokenCache.class);
+
+    private final JwtUtil jwtUtil;
+    private final Cache verifiedTokens;
+    private final Cache revokedTokens;
+
+    public VerifiedTokenCache(JwtUtil jwtUtil, CacheManager cacheManager) {
+        this.jwtUtil = jwtUtil;
+        this.verifiedTokens = cacheManager.getCache(CacheConfig.VERIFIED_TOKENS_CACHE);
+        this.revokedTokens = cacheManager.getCache(CacheConfig.REVOKED_TOKENS_CACHE);
+    }
+
+    /**
+     * @return the verified token, or null when it is malformed, tampered with, expired or revoked
+     */
+    public VerifiedToken verify(String token) {
+        String key = hash(token);
+        if (revokedTokens.get(key) != null) {
+            return null;
+        }
+        VerifiedToken cached = verifiedTokens.get(key, VerifiedToken.class);
+        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+            return cached;
+        }
+
+        VerifiedToken verified = parse(token);
+        if (verified != null) {
+            verifiedTokens.put(key, verified);
+        }
+        return verified;
+    }
+
+    /** Refuses the token from now on; returns false when it was not a valid token to begin with. */
+    public boolean revoke(String token) {
+        VerifiedToken verified = verify(token);
+        if (verified == null) {
+            return false;
+        }
+        String key = hash(token);
+        revokedTokens.put(key, verified);
+        verifiedTokens.evict(key);
+        log.info("Revoked token for user: {}", verified.username());
+        return true;
+    }
+
+    private VerifiedToken parse(String token) {
+        try {
+            Claims claims = jwtUtil.verify(token);
+            if (claims.getExpiration() == null) {
+                // every token we issue expires; one that does not was not issued by us
+                return null;
+            }
+            return new VerifiedToken(claims.getSubject(), claims, claims.getExpiration().toInstant());
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -10,25 +10,25 @@ import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfigurationSource;
 
-import com.bucott.store.user.service.UserDetailsServiceImpl;
-import com.bucott.store.security.util.JwtUtil;
+import com.bucott.store.security.cache.VerifiedTokenCache;
+import com.bucott.store.security.principal.TokenPrincipalResolver;
 
 @Configuration
 public class SecurityConfig {
-    private final JwtUtil jwtUtil;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenPrincipalResolver principalResolver;
     private final CorsConfigurationSource corsConfigurationSource;
 
-    public SecurityConfig(JwtUtil jwtUtil, UserDetailsServiceImpl userDetailsService, 
+    public SecurityConfig(VerifiedTokenCache verifiedTokenCache, TokenPrincipalResolver principalResolver,
                          CorsConfigurationSource corsConfigurationSource) {
-        this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.principalResolver = principalResolver;
         this.corsConfigurationSource = corsConfigurationSource;
     }
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtUtil, userDetailsService);
+        return new JwtAuthenticationFilter(verifiedTokenCache, principalResolver);
     }
 
     @Bean AuthenticationManager authenticationManager(AuthenticationConfiguration authConfig) throws Exception {
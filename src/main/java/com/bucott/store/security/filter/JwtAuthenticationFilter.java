@@ -5,13 +5,17 @@ import java.io.IOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AccountStatusException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import com.bucott.store.user.service.UserDetailsService;
-import com.bucott.store.security.util.JwtUtil;
+import com.bucott.store.security.cache.VerifiedToken;
+import com.bucott.store.security.cache.VerifiedTokenCache;
+import com.bucott.store.security.principal.TokenPrincipalResolver;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -20,19 +24,19 @@ import jakarta.servlet.http.HttpServletResponse;
 
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
-    private final JwtUtil jwtUtil;
-    private final UserDetailsService userDetailsService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenPrincipalResolver principalResolver;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
-        this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
+    public JwtAuthenticationFilter(VerifiedTokenCache verifiedTokenCache, TokenPrincipalResolver principalResolver) {
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.principalResolver = principalResolver;
     }
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
             throws ServletException, IOException {
         String token = null;
-        String username = null;
+        VerifiedToken verified = null;
 
         // Check Authorization header
         String authHeader = request.getHeader("Authorization");
@@ -41,17 +45,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         if (token != null && !token.isEmpty()) {
-            try {
-                username = jwtUtil.extractUsername(token);
-            } catch (Exception e) {
-                // invalid token, let security handle it
-            }
+            // signature and expiry are checked once per token, not once per request; null when invalid or revoked
+            verified = verifiedTokenCache.verify(token);
         }
 
+        String username = verified != null ? verified.username() : null;
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            var userDetails = userDetailsService.loadUserByUsername(username);
+            UserDetails userDetails = null;
             log.info("Validating token for user: {}", username);
-            if (jwtUtil.validateToken(token, userDetails.getUsername())) {
+            try {
+                // from the token's claims while they are fresh, from the database otherwise
+                userDetails = principalResolver.resolve(verified);
+            } catch (UsernameNotFoundException | AccountStatusException e) {
+                // the user was deleted, disabled or locked after the token was issued
+                log.warn("Token refused for user {}: {}", username, e.getMessage());
+            }
+            if (userDetails != null && username.equals(userDetails.getUsername())) {
                 log.info("Token validation successful for user: {}", username);
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
@@ -0,0 +1,109 @@
+package com.bucott.store.security.password;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.bucott.store.auth.exception.PasswordHashingBusyException;
+import com.bucott.store.config.PasswordConfig;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Runs the password encoder on the password hashing executor, so a burst of logins and
+ * registrations uses at most that executor's threads and queue, and anything beyond it is
+ * refused with a {@link PasswordHashingBusyException} rather than tying up request threads.
+ * <p>
+ * Each operation is timed as {@code auth.password.hashing} from submission to result, so
+ * the time spent queued shows; rejections are counted as {@code auth.password.hashing.rejected}.
+ */
+@Component
+public class PasswordHasher {
+    private static final Logger log = LoggerFactory.getLogger(PasswordHasher.class);
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Duration maxWait;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejections;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          @Qualifier(PasswordConfig.PASSWORD_HASHING_EXECUTOR) ThreadPoolExecutor executor,
+                          @Value("${app.security.password.max-wait:PT5S}") Duration maxWait,
+                          MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.executor = executor;
+        this.maxWait = maxWait;
+        this.encodeTimer = timer(meterRegistry, "encode");
+        this.matchesTimer = timer(meterRegistry, "matches");
+        this.rejections = Counter.builder("auth.password.hashing.rejected")
+                .description("Password hashing requests refused because the queue was full or too slow")
+                .register(meterRegistry);
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    // True when the hash was made with weaker settings than the encoder now uses; cheap, no hashing
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Timer timer, Callable<T> operation) {
+        long startedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(operation);
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            log.warn("Password hashing queue is full, refusing request");
+            throw new PasswordHashingBusyException("Too many sign-in requests, please retry shortly", e);
+        }
+        try {
+            return result.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            rejections.increment();
+            log.warn("Password hashing took longer than {}, refusing request", maxWait);
+            throw new PasswordHashingBusyException("Too many sign-in requests, please retry shortly", e);
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        } finally {
+            timer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("auth.password.hashing")
+                .description("Time from submitting a password hashing operation to its result")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
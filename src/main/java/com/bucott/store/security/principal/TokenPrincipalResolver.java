@@ -0,0 +1,90 @@
+package com.bucott.store.security.principal;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.AccountStatusException;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import com.bucott.store.config.CacheConfig;
+import com.bucott.store.security.cache.VerifiedToken;
+import com.bucott.store.security.util.JwtUtil;
+import com.bucott.store.user.event.UserChangedEvent;
+import com.bucott.store.user.service.UserDetailsService;
+
+/**
+ * Turns a verified token into the principal of the request, from the roles embedded in the
+ * token whenever they can be trusted, so the users table stays off the per-request path.
+ * <p>
+ * Claims are trusted for {@code max-claims-age} after the token was issued, unless the user
+ * has changed since. Otherwise the user comes from the user details service, which caches it
+ * until it changes, and must still be enabled, unlocked and unexpired.
+ */
+@Component
+public class TokenPrincipalResolver {
+    private static final Logger log = LoggerFactory.getLogger(TokenPrincipalResolver.class);
+    private static final AccountStatusUserDetailsChecker ACCOUNT_STATUS = new AccountStatusUserDetailsChecker();
+
+    private final UserDetailsService userDetailsService;
+    private final Cache userChanges;
+    private final Duration maxClaimsAge;
+
+    public TokenPrincipalResolver(UserDetailsService userDetailsService, CacheManager cacheManager,
+                                  @Value("${app.security.principal.max-claims-age:PT15M}") Duration maxClaimsAge) {
+        this.userDetailsService = userDetailsService;
+        this.userChanges = cacheManager.getCache(CacheConfig.USER_CHANGES_CACHE);
+        this.maxClaimsAge = maxClaimsAge;
+    }
+
+    /**
+     * @throws org.springframework.security.core.userdetails.UsernameNotFoundException if the
+     *         user has to be loaded and no longer exists
+     * @throws AccountStatusException if the user has to be loaded and may no longer sign in
+     */
+    public UserDetails resolve(VerifiedToken token) {
+        String username = token.username();
+        Instant changedAt = userChanges.get(username, Instant.class);
+
+        Collection<?> roles = token.claims().get(JwtUtil.ROLES_CLAIM, Collection.class);
+        Date issuedAt = token.claims().getIssuedAt();
+        if (roles != null && issuedAt != null && trusted(issuedAt.toInstant(), changedAt)) {
+            return principal(username, roles.stream().map(String::valueOf).toArray(String[]::new));
+        }
+
+        UserDetails user = userDetailsService.loadUserByUsername(username);
+        ACCOUNT_STATUS.check(user);
+        log.debug("Checked user {} against the user details", username);
+        return principal(user.getUsername(), user.getAuthorities().stream()
+                .map(authority -> authority.getAuthority())
+                .toArray(String[]::new));
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        userChanges.put(event.username(), Instant.now());
+    }
+
+    private boolean trusted(Instant issuedAt, Instant changedAt) {
+        return issuedAt.plus(maxClaimsAge).isAfter(Instant.now())
+                && (changedAt == null || issuedAt.isAfter(changedAt));
+    }
+
+    // Never carries the password hash: the token is the credential
+    private static UserDetails principal(String username, String[] authorities) {
+        return User.withUsername(username)
+                .password("")
+                .authorities(authorities)
+                .build();
+    }
+}
@@ -2,8 +2,10 @@ package com.bucott.store.security.util;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -11,23 +13,29 @@ import org.springframework.stereotype.Component;
 
 import io.github.cdimascio.dotenv.Dotenv;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 
 @Component
 public class JwtUtil {
-    private final String SECRET_KEY;
+    public static final String ROLES_CLAIM = "roles";
+
     private final long EXPIRATION_TIME = 86400000;
 
+    // Built once: both are immutable and thread-safe, and rebuilding them costs more than the parse
+    private final Key signingKey;
+    private final JwtParser parser;
+
     public JwtUtil() {
-        Dotenv dotenv = Dotenv.load();
-        this.SECRET_KEY = dotenv.get("JWT_SECRET_KEY");
+        this(Dotenv.load().get("JWT_SECRET_KEY"));
     }
 
-    private Key getSigningKey() {
-        byte[] keyBytes = SECRET_KEY.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    JwtUtil(String secretKey) {
+        this.signingKey = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
     }
 
     public String generateToken(String username, String email) {
@@ -36,6 +44,14 @@ public class JwtUtil {
         return createToken(claims, username);
     }
 
+    // with the user's authorities embedded, so requests can be authorized from the token alone
+    public String generateToken(String username, String email, Collection<String> roles) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("email", email);
+        claims.put(ROLES_CLAIM, List.copyOf(roles));
+        return createToken(claims, username);
+    }
+
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts
             .builder()
@@ -43,10 +59,20 @@ public class JwtUtil {
             .setSubject(subject)
             .setIssuedAt(new Date(System.currentTimeMillis()))
             .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-            .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+            .signWith(signingKey, SignatureAlgorithm.HS256)
             .compact();
     }
 
+    /**
+     * Parses the token and checks its signature and expiry in one pass.
+     *
+     * @return the verified claims
+     * @throws JwtException if the token is malformed, tampered with or expired
+     */
+    public Claims verify(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -56,26 +82,11 @@ public class JwtUtil {
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
-
-    private Claims extractAllClaims(String token) {
-        return Jwts
-            .parserBuilder()
-            .setSigningKey(getSigningKey())
-            .build()
-            .parseClaimsJws(token)
-            .getBody();
+        return claimsResolver.apply(verify(token));
     }
 
     public boolean validateToken(String token, String username) {
-        String tokenUsername = extractUsername(token);
-        return (tokenUsername.equals(username) && !isTokenExpired(token));
-    }
-
-    private boolean isTokenExpired(String token) {
-        final Date expiration = extractClaim(token, Claims::getExpiration);
-        return expiration.before(new Date());
+        // verify already rejects expired tokens
+        return username.equals(verify(token).getSubject());
     }
 }
@@ -0,0 +1,80 @@
+package com.bucott.store.user.dto;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.bucott.store.user.model.User;
+
+/**
+ * Immutable snapshot of what authentication needs from a user, safe to cache and share
+ * between threads. Unlike Spring's {@code User}, its credentials cannot be erased in place.
+ */
+public record UserAccountDTO(
+    String username,
+    String email,
+    String password,
+    Set<GrantedAuthority> authorities,
+    boolean accountNonExpired,
+    boolean accountNonLocked,
+    boolean enabled
+) implements UserDetails {
+    public UserAccountDTO {
+        authorities = Set.copyOf(authorities);
+    }
+
+    public static UserAccountDTO of(User user) {
+        return new UserAccountDTO(
+                user.getUsername(),
+                user.getEmail(),
+                user.getPassword(),
+                user.getRoles().stream()
+                        .map(role -> new SimpleGrantedAuthority(role.getAuthority().name()))
+                        .collect(Collectors.toSet()),
+                !user.isExpired(),
+                !user.isLocked(),
+                user.isEnabled());
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return accountNonExpired;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return accountNonLocked;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // keeps the password hash out of logs
+    @Override
+    public String toString() {
+        return "UserAccountDTO[username=" + username + ", email=" + email + ", authorities=" + authorities
+                + ", accountNonExpired=" + accountNonExpired + ", accountNonLocked=" + accountNonLocked
+                + ", enabled=" + enabled + "]";
+    }
+}
@@ -0,0 +1,7 @@
+package com.bucott.store.user.event;
+
+/**
+ * Published whenever a stored user is updated or deleted, whichever code path wrote it.
+ * Anything holding on to a user's credentials, roles or account state listens for it.
+ */
+public record UserChangedEvent(String username, String email) { }
@@ -0,0 +1,26 @@
+package com.bucott.store.user.event;
+
+import com.bucott.store.user.model.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener (instantiated through Spring) that announces every change to a stored
+ * user. New users need no announcement: nothing can have been derived from them yet.
+ */
+@Component
+public class UserEntityListener {
+    private final ApplicationEventPublisher eventPublisher;
+
+    public UserEntityListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void onUserChanged(User user) {
+        eventPublisher.publishEvent(new UserChangedEvent(user.getUsername(), user.getEmail()));
+    }
+}
@@ -6,6 +6,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.bucott.store.address.model.Address;
+import com.bucott.store.user.event.UserEntityListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import org.springframework.security.core.GrantedAuthority;
@@ -15,6 +16,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity @Table(name = "users")
+@EntityListeners(UserEntityListener.class)
 @NoArgsConstructor @Data
 public class User implements UserDetails {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -1,77 +1,137 @@
 package com.bucott.store.user.service;
 
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import com.bucott.store.config.CacheConfig;
+import com.bucott.store.user.dto.UserAccountDTO;
+import com.bucott.store.user.event.UserChangedEvent;
 import com.bucott.store.user.exception.UserNotFoundException;
 import com.bucott.store.user.model.User;
 import com.bucott.store.user.repository.UserRepository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
+/**
+ * Loads users for authentication through a cache of immutable {@link UserAccountDTO}s, stored
+ * under the user's normalized username and email. Entries are dropped whenever the user changes.
+ * Hits and misses show up in the cache metrics; database loads are timed as {@code users.details.load}.
+ */
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService, UserService {
     private static final Logger log = LoggerFactory.getLogger(UserDetailsServiceImpl.class);
     private final UserRepository userRepo;
+    private final Cache userDetails;
+    private final Timer loadTimer;
+    // Moves on with every invalidation, so a load that raced one is not cached
+    private final AtomicLong invalidations = new AtomicLong();
 
-    public UserDetailsServiceImpl(UserRepository userRepo) {
+    public UserDetailsServiceImpl(UserRepository userRepo, CacheManager cacheManager, MeterRegistry meterRegistry) {
         this.userRepo = userRepo;
+        this.userDetails = cacheManager.getCache(CacheConfig.USER_DETAILS_CACHE);
+        this.loadTimer = Timer.builder("users.details.load")
+                .description("Time to load a user from the database for authentication")
+                .register(meterRegistry);
     }
 
 
     @Override
-    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        log.info("Attempting to load user by username: {}", username);
-        User user = userRepo.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException(
-                        "User not found with username: " + username));
-        log.info("User found: {}", user);
-
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUsername())
-                .password(user.getPassword())
-                .authorities(user.getRoles().stream()
-                        .map(role -> role.getAuthority().name())
-                        .toArray(String[]::new))
-                .build();
+        log.debug("Attempting to load user by username: {}", username);
+        UserAccountDTO account = cached(usernameKey(username), cachedAccount -> cachedAccount.username().equals(username));
+        if (account == null) {
+            account = load(() -> userRepo.findByUsername(username));
+        }
+        if (account == null) {
+            throw new UsernameNotFoundException("User not found with username: " + username);
+        }
+        return account;
     }
 
     @Override
     public UserDetails loadUserByEmail(String email) throws UsernameNotFoundException {
-        log.info("Attempting to load user by email: {}", email);
-        User user = userRepo.findByEmail(email)
-                .orElseThrow(() -> new UsernameNotFoundException(
-                        "User not found with email: " + email));
-        log.info("User found: {}", user);
-
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUsername())
-                .password(user.getPassword())
-                .authorities(user.getRoles().stream()
-                        .map(role -> role.getAuthority().name())
-                        .toArray(String[]::new))
-                .build();
+        log.debug("Attempting to load user by email: {}", email);
+        UserAccountDTO account = cached(emailKey(email), cachedAccount -> cachedAccount.email().equals(email));
+        if (account == null) {
+            account = load(() -> userRepo.findByEmail(email));
+        }
+        if (account == null) {
+            throw new UsernameNotFoundException("User not found with email: " + email);
+        }
+        return account;
     }
 
     @Override
     public UserDetails loadUserByUsernameOrEmail(String identifier) throws UserNotFoundException {
-        User user = userRepo.findByUsernameOrEmail(identifier)
-                .orElseThrow(() -> new UsernameNotFoundException(
-                        "User not found with username or email: " + identifier));
-
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUsername())
-                .password(user.getPassword())
-                .authorities(user.getRoles().stream()
-                        .map(role -> role.getAuthority().name())
-                        .toArray(String[]::new))
-                .build();
+        UserAccountDTO account = cached(usernameKey(identifier), cachedAccount -> cachedAccount.username().equals(identifier));
+        if (account == null) {
+            account = cached(emailKey(identifier), cachedAccount -> cachedAccount.email().equals(identifier));
+        }
+        if (account == null) {
+            account = load(() -> userRepo.findByUsernameOrEmail(identifier));
+        }
+        if (account == null) {
+            throw new UsernameNotFoundException("User not found with username or email: " + identifier);
+        }
+        return account;
+    }
+
+    // After commit, so that a load between the write and its commit cannot cache the old row for long
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        invalidations.incrementAndGet();
+        userDetails.evict(usernameKey(event.username()));
+        userDetails.evict(emailKey(event.email()));
+        // The email may have changed too, leaving an entry under the old one
+        if (userDetails.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+            nativeCache.asMap().values().removeIf(value ->
+                    value instanceof UserAccountDTO account && account.username().equals(event.username()));
+        }
+        log.debug("Evicted cached user details for: {}", event.username());
+    }
+
+    private UserAccountDTO cached(String key, Predicate<UserAccountDTO> matches) {
+        UserAccountDTO account = userDetails.get(key, UserAccountDTO.class);
+        // Keys ignore case but lookups do not; an entry for another spelling is not this user
+        return account != null && matches.test(account) ? account : null;
     }
 
+    private UserAccountDTO load(Supplier<Optional<User>> query) {
+        long generation = invalidations.get();
+        UserAccountDTO account = loadTimer.record(() -> query.get().map(UserAccountDTO::of).orElse(null));
+        if (account == null) {
+            return null;
+        }
+        log.debug("User found: {}", account.username());
+        if (invalidations.get() == generation) {
+            userDetails.put(usernameKey(account.username()), account);
+            userDetails.put(emailKey(account.email()), account);
+        }
+        return account;
+    }
 
+    private static String usernameKey(String username) {
+        return "username:" + normalize(username);
+    }
 
+    private static String emailKey(String email) {
+        return "email:" + normalize(email);
+    }
+
+    private static String normalize(String identifier) {
+        return identifier == null ? "" : identifier.trim().toLowerCase(Locale.ROOT);
+    }
 }
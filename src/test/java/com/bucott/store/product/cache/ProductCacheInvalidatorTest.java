@@ -0,0 +1,72 @@
+package com.bucott.store.product.cache;
+
+import com.bucott.store.config.CacheConfig;
+import com.bucott.store.product.dto.ProductInfoDTO;
+import com.bucott.store.product.event.ProductChangedEvent;
+import com.bucott.store.product.event.ProductStockChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that a product change is evicted from the caches before the catalog version moves on,
+ * so nothing read under the new version can come from the old cached product.
+ */
+class ProductCacheInvalidatorTest {
+
+    @Test
+    void evictsBeforeMovingTheCatalogVersionOn() {
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(
+                CacheConfig.PRODUCTS_CACHE, CacheConfig.PRODUCT_RESPONSES_CACHE);
+        Cache productsCache = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+        Cache responsesCache = cacheManager.getCache(CacheConfig.PRODUCT_RESPONSES_CACHE);
+        productsCache.put(1L, "old product");
+        responsesCache.put("/api/v1/products", "old response");
+
+        AtomicBoolean evictedFirst = new AtomicBoolean();
+        ProductCatalogVersion catalogVersion = new ProductCatalogVersion() {
+            @Override
+            public void increment() {
+                evictedFirst.set(productsCache.get(1L) == null && responsesCache.get("/api/v1/products") == null);
+                super.increment();
+            }
+        };
+        long before = catalogVersion.current();
+
+        new ProductCacheInvalidator(cacheManager, catalogVersion).onProductChanged(ProductChangedEvent.deleted(1L));
+
+        assertThat(catalogVersion.current()).isEqualTo(before + 1);
+        assertThat(evictedFirst).isTrue();
+    }
+
+    @Test
+    void stockBatchClearsAndMovesTheVersionOnOnce() {
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(
+                CacheConfig.PRODUCTS_CACHE, CacheConfig.PRODUCT_RESPONSES_CACHE);
+        Cache productsCache = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+        ProductCatalogVersion catalogVersion = new ProductCatalogVersion();
+        List<Long> productIds = List.of(1L, 2L, 3L);
+        productIds.forEach(id -> productsCache.put(id, "old product"));
+        List<ProductChangedEvent> products = productIds.stream()
+                .map(id -> ProductChangedEvent.updated(new ProductInfoDTO(id, "Product " + id, "Some description",
+                        BigDecimal.TEN, BigDecimal.ONE, 0, null, null, 2L, Set.of()), Set.of()))
+                .toList();
+        long before = catalogVersion.current();
+        ProductCacheInvalidator invalidator = new ProductCacheInvalidator(cacheManager, catalogVersion);
+        long evictions = invalidator.evictions();
+
+        invalidator.onProductStockChanged(new ProductStockChangedEvent(products));
+
+        assertThat(catalogVersion.current()).isEqualTo(before + 1);
+        assertThat(invalidator.evictions()).isEqualTo(evictions + 1);
+        assertThat(productsCache.get(1L)).isNull();
+        assertThat(productsCache.get(3L)).isNull();
+    }
+}
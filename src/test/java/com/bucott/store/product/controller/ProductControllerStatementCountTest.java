@@ -0,0 +1,95 @@
+package com.bucott.store.product.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards against N+1 category loading: a list endpoint must run a bounded number of
+ * statements no matter how many products it returns. Each request must return a non-empty
+ * page, so the count covers loading products and not an early 404.
+ */
+// The response cache is off so every request reaches the database and is counted
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.products.response-cache.enabled=false"
+})
+@AutoConfigureMockMvc
+class ProductControllerStatementCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void getAllProductsLoadsCategoriesInOneBatch() throws Exception {
+        // page query + count query + one batch for the categories
+        assertStatementsAtMost("/api/v1/products?size=50", 3);
+    }
+
+    @Test
+    void getAllProductsByCursorLoadsCategoriesInOneBatch() throws Exception {
+        // window query + one batch for the categories + at most one count for the estimate
+        assertStatementsAtMost("/api/v1/products?keyset=true&size=50", 3);
+    }
+
+    @Test
+    void getProductsByCategoryLoadsCategoriesInOneBatch() throws Exception {
+        assertStatementsAtMost("/api/v1/products/search/category/1", 2);
+    }
+
+    @Test
+    void getProductsByPriceRangeFetchesCategoriesWithProducts() throws Exception {
+        assertStatementsAtMost("/api/v1/products/search/price-range?minPrice=0&maxPrice=1000000", 1);
+    }
+
+    @Test
+    void getProductsByStockAvailabilityFetchesCategoriesWithProducts() throws Exception {
+        assertStatementsAtMost("/api/v1/products/search/stock?inStock=true", 1);
+    }
+
+    @Test
+    void getProductsByNameFetchesCategoriesWithProducts() throws Exception {
+        assertStatementsAtMost("/api/v1/products/search/name/e", 1);
+    }
+
+    @Test
+    void getProductsByDescriptionFetchesCategoriesWithProducts() throws Exception {
+        assertStatementsAtMost("/api/v1/products/search/description/e", 1);
+    }
+
+    @Test
+    void getProductsByCategoryAndPriceRangeLoadsCategoriesInOneBatch() throws Exception {
+        assertStatementsAtMost("/api/v1/products/search/category-price-range?categoryId=1&minPrice=0&maxPrice=1000000", 2);
+    }
+
+    private void assertStatementsAtMost(String url, long maxStatements) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content").isNotEmpty());
+        assertThat(statistics.getPrepareStatementCount())
+                .as("statements executed for %s", url)
+                .isLessThanOrEqualTo(maxStatements);
+    }
+}
@@ -0,0 +1,243 @@
+package com.bucott.store.product.index;
+
+import com.bucott.store.product.dto.ProductInfoDTO;
+import com.bucott.store.product.event.ProductChangedEvent;
+import com.bucott.store.product.event.ProductsImportedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the attribute index through its event listeners, which run immediately outside a
+ * transaction, and checks its answers against a plain model of the products. Indexes with
+ * different merge thresholds must agree: whether a write sits in the delta or has been merged
+ * into a snapshot is never visible to readers.
+ */
+class ProductAttributeIndexTest {
+    private static final long A = 1L;
+    private static final long B = 2L;
+    private static final long[] BUCKETS = {0, 1000, 2500, 4000};
+
+    @Test
+    void answersTheSameBeforeAtAndAfterTheMerge() {
+        ProductAttributeIndex index = new ProductAttributeIndex(null, 3);
+
+        index.onProductChanged(created(1L, "5.00", 1, A));
+        index.onProductChanged(created(2L, "15.00", 0, B));
+        assertThat(index.findIds(null, null, null)).containsExactly(1L, 2L);
+
+        // Still two changed products: the update replaces product 1's pending entry
+        index.onProductChanged(updated(1L, "20.00", 1, A));
+        assertThat(index.findIds(null, null, null)).containsExactly(2L, 1L);
+        assertThat(index.findIds(A, null, null)).containsExactly(1L);
+
+        // The third changed product reaches the threshold and everything moves into a snapshot
+        index.onProductChanged(created(3L, "10.00", 1, A, B));
+        assertThat(index.findIds(null, null, null)).containsExactly(3L, 2L, 1L);
+        assertThat(index.findIds(B, null, null)).containsExactly(3L, 2L);
+        assertThat(index.findIds(null, 1000L, 1500L)).containsExactly(3L, 2L);
+
+        // Writes after the merge hide the snapshot's copy until the next one
+        index.onProductChanged(updated(3L, "30.00", 1, A));
+        index.onProductChanged(ProductChangedEvent.deleted(2L));
+        assertThat(index.findIds(null, null, null)).containsExactly(1L, 3L);
+        assertThat(index.findIds(B, null, null)).isEmpty();
+        assertThat(index.findIds(A, 2500L, null)).containsExactly(3L);
+    }
+
+    @Test
+    void keepsProductsWithoutAPriceOutOfPriceRanges() {
+        ProductAttributeIndex index = new ProductAttributeIndex(null, 2);
+        index.onProductChanged(created(1L, null, 1, A));
+        index.onProductChanged(created(2L, "0.01", 1, A));
+        index.onProductChanged(created(3L, null, 1, A));
+
+        assertThat(index.findIds(A, null, null)).containsExactly(1L, 3L, 2L);
+        assertThat(index.findIds(A, null, 100L)).containsExactly(2L);
+        assertThat(index.findIds(A, 0L, null)).containsExactly(2L);
+    }
+
+    @Test
+    void facetsIgnoreTheirOwnFilter() {
+        ProductAttributeIndex index = new ProductAttributeIndex(null, 4);
+        index.onProductChanged(created(1L, "5.00", 1, A));
+        index.onProductChanged(created(2L, "15.00", 0, B));
+        index.onProductChanged(created(3L, "25.00", 0, A));
+        index.onProductChanged(created(4L, "12.00", 2, A, B));
+        long[] buckets = {0, 1000, 2000};
+
+        ProductAttributeIndex.Facets facets = index.facets(null, A, null, null, true, buckets);
+        // Categories are counted as if no category were picked, but only over in-stock products
+        assertThat(facets.categoryCounts()).containsEntry(A, 2L).containsEntry(B, 1L);
+        // Stock states are counted as if no stock state were picked, but only within category A
+        assertThat(facets.inStock()).isEqualTo(2);
+        assertThat(facets.outOfStock()).isEqualTo(1);
+        // Price buckets see both filters but no price range, so all of A that is in stock
+        assertThat(facets.priceBucketCounts()).containsExactly(1, 1, 0);
+
+        // The same holds for writes still waiting in the delta: 5 and the new copy of 1
+        index.onProductChanged(created(5L, "22.00", 1, B));
+        index.onProductChanged(updated(1L, "18.00", 0, A));
+        facets = index.facets(null, A, 1000L, null, null, buckets);
+        assertThat(facets.categoryCounts()).containsEntry(A, 3L).containsEntry(B, 3L);
+        assertThat(facets.inStock()).isEqualTo(1);
+        assertThat(facets.outOfStock()).isEqualTo(2);
+        assertThat(facets.priceBucketCounts()).containsExactly(0, 2, 1);
+
+        facets = index.facets(Set.of(2L, 5L), null, null, null, null, buckets);
+        assertThat(facets.categoryCounts()).containsEntry(B, 2L);
+        assertThat(facets.categoryCounts().getOrDefault(A, 0L)).isZero();
+        assertThat(facets.priceBucketCounts()).containsExactly(0, 1, 1);
+
+        // A range emptied by rounding its bounds inwards to whole cents
+        facets = index.facets(null, null, 1501L, 1500L, null, buckets);
+        assertThat(facets.inStock() + facets.outOfStock()).isZero();
+        assertThat(facets.priceBucketCounts()).containsExactly(0, 3, 2);
+    }
+
+    @Test
+    void agreesWithTheModelWhateverTheMergeThreshold() {
+        List<ProductAttributeIndex> indexes = List.of(
+                new ProductAttributeIndex(null, 1),
+                new ProductAttributeIndex(null, 5),
+                new ProductAttributeIndex(null, Integer.MAX_VALUE));
+        Map<Long, Product> model = new HashMap<>();
+        Random random = new Random(11);
+
+        for (int step = 0; step < 400; step++) {
+            List<ProductChangedEvent> events = new ArrayList<>();
+            int batch = random.nextInt(5) == 0 ? 1 + random.nextInt(8) : 1;
+            for (int i = 0; i < batch; i++) {
+                events.add(randomChange(random, model));
+            }
+            for (ProductAttributeIndex index : indexes) {
+                if (events.size() == 1) {
+                    index.onProductChanged(events.get(0));
+                } else {
+                    index.onProductsImported(new ProductsImportedEvent(events));
+                }
+            }
+
+            for (int query = 0; query < 5; query++) {
+                Long categoryId = random.nextBoolean() ? null : 1L + random.nextInt(4);
+                Long minCents = random.nextBoolean() ? null : (long) random.nextInt(5000);
+                Long maxCents = random.nextBoolean() ? null : (long) random.nextInt(5000);
+                long[] expected = expectedIds(model, categoryId, minCents, maxCents);
+                Boolean inStock = random.nextBoolean() ? null : random.nextBoolean();
+                Set<Long> candidateIds = random.nextBoolean() ? null
+                        : Set.copyOf(random.ints(10, 1, 31).boxed().map(Long::valueOf).toList());
+                ProductAttributeIndex.Facets expectedFacets =
+                        expectedFacets(model, candidateIds, categoryId, minCents, maxCents, inStock);
+                for (ProductAttributeIndex index : indexes) {
+                    assertThat(index.findIds(categoryId, minCents, maxCents)).isEqualTo(expected);
+                    assertSameFacets(index.facets(candidateIds, categoryId, minCents, maxCents, inStock, BUCKETS), expectedFacets);
+                }
+            }
+        }
+    }
+
+    private record Product(long productId, Long priceCents, int stock, Set<Long> categoryIds) { }
+
+    // Creates, updates or deletes a random product, in the model and as the event for it
+    private static ProductChangedEvent randomChange(Random random, Map<Long, Product> model) {
+        long productId = 1 + random.nextInt(30);
+        if (model.containsKey(productId) && random.nextInt(4) == 0) {
+            model.remove(productId);
+            return ProductChangedEvent.deleted(productId);
+        }
+        Long priceCents = random.nextInt(10) == 0 ? null : (long) (1 + random.nextInt(5000));
+        int stock = random.nextInt(3);
+        Set<Long> categoryIds = Set.copyOf(random.ints(1 + random.nextInt(2), 1, 5).boxed().map(Long::valueOf).toList());
+        boolean exists = model.containsKey(productId);
+        model.put(productId, new Product(productId, priceCents, stock, categoryIds));
+        ProductInfoDTO product = product(productId, priceCents == null ? null : BigDecimal.valueOf(priceCents, 2), stock);
+        return exists ? ProductChangedEvent.updated(product, categoryIds) : ProductChangedEvent.created(product, categoryIds);
+    }
+
+    private static long[] expectedIds(Map<Long, Product> model, Long categoryId, Long minCents, Long maxCents) {
+        return model.values().stream()
+                .filter(product -> categoryId == null || product.categoryIds().contains(categoryId))
+                .filter(product -> priceMatches(product, minCents, maxCents))
+                .sorted(Comparator.comparing((Product product) -> product.priceCents() == null ? Long.MIN_VALUE : product.priceCents())
+                        .thenComparingLong(Product::productId))
+                .mapToLong(Product::productId)
+                .toArray();
+    }
+
+    // Each facet applies every filter except its own
+    private static ProductAttributeIndex.Facets expectedFacets(Map<Long, Product> model, Set<Long> candidateIds,
+                                                               Long categoryId, Long minCents, Long maxCents, Boolean inStock) {
+        Map<Long, Long> categoryCounts = new HashMap<>();
+        long inStockCount = 0;
+        long outOfStockCount = 0;
+        long[] bucketCounts = new long[BUCKETS.length];
+        for (Product product : model.values()) {
+            if (candidateIds != null && !candidateIds.contains(product.productId())) {
+                continue;
+            }
+            boolean categoryMatches = categoryId == null || product.categoryIds().contains(categoryId);
+            boolean priceMatches = priceMatches(product, minCents, maxCents);
+            boolean stockMatches = inStock == null || (product.stock() > 0) == inStock;
+            if (priceMatches && stockMatches) {
+                product.categoryIds().forEach(id -> categoryCounts.merge(id, 1L, Long::sum));
+            }
+            if (categoryMatches && priceMatches) {
+                if (product.stock() > 0) {
+                    inStockCount++;
+                } else {
+                    outOfStockCount++;
+                }
+            }
+            if (categoryMatches && stockMatches && product.priceCents() != null) {
+                for (int i = BUCKETS.length - 1; i >= 0; i--) {
+                    if (product.priceCents() >= BUCKETS[i]) {
+                        bucketCounts[i]++;
+                        break;
+                    }
+                }
+            }
+        }
+        return new ProductAttributeIndex.Facets(categoryCounts, inStockCount, outOfStockCount, bucketCounts);
+    }
+
+    // Categories nothing matched may be listed with a zero count or left out
+    private static void assertSameFacets(ProductAttributeIndex.Facets actual, ProductAttributeIndex.Facets expected) {
+        Map<Long, Long> nonZero = new HashMap<>(actual.categoryCounts());
+        nonZero.values().removeIf(count -> count == 0);
+        assertThat(nonZero).isEqualTo(expected.categoryCounts());
+        assertThat(actual.inStock()).isEqualTo(expected.inStock());
+        assertThat(actual.outOfStock()).isEqualTo(expected.outOfStock());
+        assertThat(actual.priceBucketCounts()).isEqualTo(expected.priceBucketCounts());
+    }
+
+    private static boolean priceMatches(Product product, Long minCents, Long maxCents) {
+        if (minCents == null && maxCents == null) {
+            return true;
+        }
+        return product.priceCents() != null
+                && (minCents == null || product.priceCents() >= minCents)
+                && (maxCents == null || product.priceCents() <= maxCents);
+    }
+
+    private static ProductChangedEvent created(Long productId, String price, int stock, Long... categoryIds) {
+        return ProductChangedEvent.created(product(productId, price == null ? null : new BigDecimal(price), stock), Set.of(categoryIds));
+    }
+
+    private static ProductChangedEvent updated(Long productId, String price, int stock, Long... categoryIds) {
+        return ProductChangedEvent.updated(product(productId, price == null ? null : new BigDecimal(price), stock), Set.of(categoryIds));
+    }
+
+    private static ProductInfoDTO product(Long productId, BigDecimal price, int stock) {
+        return new ProductInfoDTO(productId, "Product " + productId, "Some description", price, BigDecimal.ONE,
+                stock, null, null, 0L, Set.of());
+    }
+}
@@ -0,0 +1,261 @@
+package com.bucott.store.product.inventory;
+
+import com.bucott.store.product.dto.ProductCreateUpdateRequestDTO;
+import com.bucott.store.product.event.ProductChangedEvent;
+import com.bucott.store.product.exception.InsufficientStockException;
+import com.bucott.store.product.mapper.ProductMapper;
+import com.bucott.store.product.repository.ProductRepository;
+import com.bucott.store.product.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hammers the reservation engine from many threads and checks that stock is never oversold,
+ * both on a bare counter and through the engine down to the product row, including while
+ * flushes and late product snapshots move the counters underneath the sales.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:inventory-stress-test") // own data, own id sequences
+class InventoryEngineStressTest {
+    private static final int THREADS = 16;
+
+    @Autowired
+    private InventoryEngine inventoryEngine;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Test
+    void counterNeverOversellsUnderContention() throws Exception {
+        int initialStock = 1_000;
+        StockCounter counter = new StockCounter(initialStock);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicBoolean oversold = new AtomicBoolean();
+
+        runConcurrently(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 50_000; i++) {
+                int quantity = 1 + random.nextInt(5);
+                if (!counter.tryReserve(quantity)) {
+                    continue;
+                }
+                if (counter.available() < 0) {
+                    oversold.set(true);
+                }
+                if (random.nextBoolean()) {
+                    counter.commit(quantity);
+                    sold.addAndGet(quantity);
+                } else {
+                    counter.release(quantity);
+                }
+            }
+            return null;
+        });
+
+        assertThat(oversold).isFalse();
+        assertThat(sold.get()).isLessThanOrEqualTo(initialStock);
+        assertThat(counter.reserved()).isZero();
+        assertThat(counter.onHand()).isEqualTo(initialStock - sold.get());
+        assertThat(counter.unflushed()).isEqualTo(-sold.get());
+    }
+
+    @Test
+    void concurrentReservationsSellExactlyTheStockAndAreWrittenBehind() throws Exception {
+        int initialStock = 500;
+        Long productId = productService.createProduct(new ProductCreateUpdateRequestDTO(
+                "Stress test product", "Product used by the reservation stress test",
+                BigDecimal.TEN, BigDecimal.ONE, initialStock, new Long[]{1L})).productId();
+        AtomicInteger sold = new AtomicInteger();
+
+        runConcurrently(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (true) {
+                InventoryEngine.Reservation reservation;
+                try {
+                    reservation = inventoryEngine.reserve(productId, 1);
+                } catch (InsufficientStockException e) {
+                    // Nothing left to reserve once every outstanding reservation has been settled
+                    if (inventoryEngine.counter(productId).onHand() == 0) {
+                        return null;
+                    }
+                    Thread.onSpinWait();
+                    continue;
+                }
+                if (random.nextInt(4) == 0) {
+                    inventoryEngine.release(reservation.reservationId());
+                } else {
+                    inventoryEngine.commit(reservation.reservationId());
+                    sold.incrementAndGet();
+                }
+            }
+        });
+
+        while (inventoryEngine.flush() > 0) {
+            // drain the ledger
+        }
+
+        assertThat(sold.get()).isEqualTo(initialStock);
+        assertThat(inventoryEngine.counter(productId).available()).isZero();
+        assertThat(productRepository.findById(productId).orElseThrow().getCurrentStock()).isZero();
+    }
+
+    @Test
+    void flushesDecrementsAndStaleSnapshotsDuringSalesNeverOversell() throws Exception {
+        int initialStock = 500;
+        Long productId = productService.createProduct(new ProductCreateUpdateRequestDTO(
+                "Rebase stress test product", "Product sold while its counter is flushed and rebased",
+                BigDecimal.TEN, BigDecimal.ONE, initialStock, new Long[]{1L})).productId();
+        AtomicInteger sold = new AtomicInteger();
+        AtomicBoolean selling = new AtomicBoolean(true);
+        AtomicInteger rebases = new AtomicInteger();
+
+        ExecutorService background = Executors.newFixedThreadPool(3);
+        List<Future<?>> backgroundTasks = new ArrayList<>();
+        try {
+            backgroundTasks.add(background.submit(() -> {
+                while (selling.get()) {
+                    inventoryEngine.flush();
+                }
+                return null;
+            }));
+            for (int i = 0; i < 2; i++) {
+                // Delivers each row late, as a slow listener would, so most snapshots are stale by then
+                backgroundTasks.add(background.submit(() -> {
+                    while (selling.get()) {
+                        var row = productRepository.findInfoByIdIn(List.of(productId)).get(0);
+                        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(2_000_000L));
+                        inventoryEngine.onProductChanged(ProductChangedEvent.updated(productMapper.toInfoDTO(row), Set.of(1L)));
+                        rebases.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+
+            // Keeps buying well past the sell-out, when any stock a stale snapshot puts back gets sold
+            long sellUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+            runConcurrently(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < sellUntil) {
+                    InventoryEngine.Reservation reservation;
+                    try {
+                        if (random.nextInt(4) == 0) {
+                            inventoryEngine.decrement(productId, 1);
+                            sold.incrementAndGet();
+                            continue;
+                        }
+                        reservation = inventoryEngine.reserve(productId, 1);
+                    } catch (InsufficientStockException e) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    if (random.nextInt(4) == 0) {
+                        inventoryEngine.release(reservation.reservationId());
+                    } else {
+                        inventoryEngine.commit(reservation.reservationId());
+                        sold.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        } finally {
+            selling.set(false);
+            for (Future<?> task : backgroundTasks) {
+                task.get(1, TimeUnit.MINUTES);
+            }
+            background.shutdownNow();
+        }
+
+        while (inventoryEngine.flush() > 0) {
+            // drain the ledger
+        }
+
+        assertThat(rebases.get()).isPositive();
+        assertThat(sold.get()).isEqualTo(initialStock);
+        assertThat(productRepository.findById(productId).orElseThrow().getCurrentStock()).isZero();
+        assertThat(inventoryEngine.counter(productId).available()).isZero();
+        assertThat(inventoryEngine.counter(productId).unflushed()).isZero();
+    }
+
+    @Test
+    void snapshotFromBeforeADecrementDoesNotPutItsStockBack() {
+        // Loaded at startup, when the row version is not known
+        StockCounter counter = new StockCounter(10);
+        int staleStock = 10;
+        long staleVersion = 0;
+
+        assertThat(counter.tryReserve(1)).isTrue();
+        counter.commitPersisted(1, 9, 1);
+        counter.rebase(staleStock, staleVersion);
+
+        assertThat(counter.onHand()).isEqualTo(9);
+        assertThat(counter.available()).isEqualTo(9);
+    }
+
+    @Test
+    void recountWhileSalesAreUnflushedNeverDrivesStockNegative() {
+        ProductCreateUpdateRequestDTO product = new ProductCreateUpdateRequestDTO(
+                "Recounted test product", "Product recounted while its sales wait in the ledger",
+                BigDecimal.TEN, BigDecimal.ONE, 5, new Long[]{1L});
+        Long productId = productService.createProduct(product).productId();
+        while (inventoryEngine.flush() > 0) {
+            // start from an empty ledger
+        }
+        for (int i = 0; i < 5; i++) {
+            inventoryEngine.commit(inventoryEngine.reserve(productId, 1).reservationId());
+        }
+
+        // The recount finds nothing left, as the sold units have already gone out
+        productService.updateProduct(productId, new ProductCreateUpdateRequestDTO(product.name(), product.description(),
+                product.price(), product.cost(), 0, product.categoryIds()), null);
+        while (inventoryEngine.flush() > 0) {
+            // drain the ledger
+        }
+
+        assertThat(productRepository.findById(productId).orElseThrow().getCurrentStock()).isZero();
+        assertThat(inventoryEngine.counter(productId).onHand()).isZero();
+        assertThat(inventoryEngine.counter(productId).unflushed()).isZero();
+    }
+
+    private static void runConcurrently(Callable<Void> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
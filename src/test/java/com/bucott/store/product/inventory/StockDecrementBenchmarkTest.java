@@ -0,0 +1,170 @@
+package com.bucott.store.product.inventory;
+
+import com.bucott.store.product.dto.ProductCreateUpdateRequestDTO;
+import com.bucott.store.product.exception.InsufficientStockException;
+import com.bucott.store.product.model.Product;
+import com.bucott.store.product.repository.ProductRepository;
+import com.bucott.store.product.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sells one product's whole stock a unit at a time from many threads, once per way of taking
+ * stock, and logs how long each took and what it got wrong:
+ * <ul>
+ *   <li>blind read-modify-write, how updates behaved before the version column: lost updates oversell</li>
+ *   <li>versioned read-modify-write, retried on optimistic lock failures</li>
+ *   <li>the conditional {@code UPDATE ... WHERE current_stock >= ?} on its own</li>
+ *   <li>the conditional UPDATE through {@link InventoryEngine#decrement}, which also refreshes the in-memory views</li>
+ * </ul>
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:stock-decrement-benchmark") // own data, own id sequences
+class StockDecrementBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(StockDecrementBenchmarkTest.class);
+    private static final int THREADS = 16;
+    private static final int INITIAL_STOCK = 2_000;
+
+    @Autowired
+    private InventoryEngine inventoryEngine;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private record Result(String name, int sold, int finalStock, int retries, long millis) {
+        int lostUpdates() {
+            return sold - (INITIAL_STOCK - finalStock);
+        }
+    }
+
+    @Test
+    void conditionalDecrementSellsExactlyTheStockUnderContention() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Result blind = run("blind read-modify-write", (productId, retries) -> {
+            Integer stock = jdbcTemplate.queryForObject(
+                    "SELECT current_stock FROM product WHERE product_id = ?", Integer.class, productId);
+            if (stock < 1) {
+                return false;
+            }
+            jdbcTemplate.update("UPDATE product SET current_stock = ? WHERE product_id = ?", stock - 1, productId);
+            return true;
+        });
+
+        Result versioned = run("versioned read-modify-write", (productId, retries) -> {
+            while (true) {
+                try {
+                    return transactionTemplate.execute(status -> {
+                        Product product = productRepository.findById(productId).orElseThrow();
+                        if (product.getCurrentStock() < 1) {
+                            return false;
+                        }
+                        product.setCurrentStock(product.getCurrentStock() - 1);
+                        return true;
+                    });
+                } catch (OptimisticLockingFailureException e) {
+                    retries.incrementAndGet();
+                }
+            }
+        });
+
+        Result conditional = run("conditional UPDATE", (productId, retries) ->
+                transactionTemplate.execute(status -> productRepository.decrementStock(productId, 1)) == 1);
+
+        Result engine = run("InventoryEngine.decrement", (productId, retries) -> {
+            try {
+                inventoryEngine.decrement(productId, 1);
+                return true;
+            } catch (InsufficientStockException e) {
+                // the counter can lag the row for a moment; only an empty row means sold out
+                return currentStock(productId) > 0 ? null : false;
+            }
+        });
+
+        for (Result result : List.of(blind, versioned, conditional, engine)) {
+            log.info("{}: sold {} of {} in {} ms ({} per second), final stock {}, lost updates {}, retries {}",
+                    result.name(), result.sold(), INITIAL_STOCK, result.millis(),
+                    result.sold() * 1000L / Math.max(1, result.millis()),
+                    result.finalStock(), result.lostUpdates(), result.retries());
+        }
+
+        for (Result result : List.of(versioned, conditional, engine)) {
+            assertThat(result.sold()).as(result.name()).isEqualTo(INITIAL_STOCK);
+            assertThat(result.finalStock()).as(result.name()).isZero();
+        }
+    }
+
+    // One sale attempt: true sold a unit, false sold out, null try again
+    private interface Sale {
+        Boolean attempt(Long productId, AtomicInteger retries);
+    }
+
+    private Result run(String name, Sale sale) throws Exception {
+        Long productId = productService.createProduct(new ProductCreateUpdateRequestDTO(
+                "Benchmark product", "Product sold out by the stock decrement benchmark",
+                BigDecimal.TEN, BigDecimal.ONE, INITIAL_STOCK, new Long[]{1L})).productId();
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger retries = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        long startedAt;
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    while (true) {
+                        Boolean result = sale.attempt(productId, retries);
+                        if (Boolean.FALSE.equals(result)) {
+                            return null;
+                        }
+                        if (result != null) {
+                            sold.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            startedAt = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        return new Result(name, sold.get(), currentStock(productId), retries.get(), millis);
+    }
+
+    private int currentStock(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT current_stock FROM product WHERE product_id = ?", Integer.class, productId);
+    }
+}
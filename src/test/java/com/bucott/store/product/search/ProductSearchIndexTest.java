@@ -0,0 +1,125 @@
+package com.bucott.store.product.search;
+
+import com.bucott.store.product.dto.ProductInfoDTO;
+import com.bucott.store.product.search.ProductSearchIndex.Field;
+import com.bucott.store.product.search.ProductSearchIndex.SearchHit;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the typo tolerance of the keyword index: how many edits a query term of each length may
+ * be off by, and that the trigram filter never drops a term the edit distance would accept.
+ */
+class ProductSearchIndexTest {
+
+    @Test
+    void allowsMoreEditsForLongerTerms() {
+        ProductSearchIndex index = new ProductSearchIndex(null, null, 2);
+        index.index(product(1L, "ox"));
+        index.index(product(2L, "lamp"));
+        index.index(product(3L, "keyboard"));
+
+        // Two letters or fewer must match exactly
+        assertThat(names(index, "ox")).containsExactly("ox");
+        assertThat(names(index, "ax")).isEmpty();
+        // Three to five letters: one edit
+        assertThat(names(index, "lamb")).containsExactly("lamp");
+        assertThat(names(index, "lmp")).containsExactly("lamp");
+        assertThat(names(index, "lumb")).isEmpty();
+        // Six or more: two edits, at either end of the word as well as inside it
+        assertThat(names(index, "xeyboarz")).containsExactly("keyboard");
+        assertThat(names(index, "keybrd")).containsExactly("keyboard");
+        assertThat(names(index, "xeybxarz")).isEmpty();
+    }
+
+    @Test
+    void capsEditsAtTheConfiguredMaximum() {
+        ProductSearchIndex index = new ProductSearchIndex(null, null, 1);
+        index.index(product(1L, "keyboard"));
+        index.index(product(2L, "lamp"));
+
+        assertThat(names(index, "keyboart")).containsExactly("keyboard");
+        assertThat(names(index, "xeyboarz")).isEmpty();
+        assertThat(names(index, "lamb")).containsExactly("lamp");
+    }
+
+    @Test
+    void prefersAnExactTermOverCloseOnes() {
+        ProductSearchIndex index = new ProductSearchIndex(null, null, 2);
+        index.index(product(1L, "lamp"));
+        index.index(product(2L, "lamb"));
+
+        assertThat(names(index, "lamb")).containsExactly("lamb");
+        assertThat(names(index, "lame")).containsExactly("lamb", "lamp");
+    }
+
+    @Test
+    void trigramFilterFindsEveryTermWithinTheAllowedEdits() {
+        Random random = new Random(20);
+        Set<String> vocabulary = new LinkedHashSet<>();
+        while (vocabulary.size() < 400) {
+            vocabulary.add(randomWord(random, 1 + random.nextInt(10)));
+        }
+        ProductSearchIndex index = new ProductSearchIndex(null, null, 2);
+        long productId = 0;
+        for (String word : vocabulary) {
+            index.index(product(++productId, word));
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            String query = randomWord(random, 1 + random.nextInt(11));
+            assertThat(names(index, query)).as(query).isEqualTo(bruteForce(vocabulary, query));
+        }
+    }
+
+    @Test
+    void editDistanceStopsPastTheBound() {
+        assertThat(ProductSearchIndex.editDistance("kitten", "sitting", 5)).isEqualTo(3);
+        assertThat(ProductSearchIndex.editDistance("kitten", "sitting", 2)).isEqualTo(3);
+        assertThat(ProductSearchIndex.editDistance("abc", "abc", 0)).isZero();
+        assertThat(ProductSearchIndex.editDistance("", "abcd", 1)).isEqualTo(2);
+    }
+
+    // Every vocabulary term within the allowed edits, worked out without the trigram index
+    private static Set<String> bruteForce(Set<String> vocabulary, String query) {
+        if (vocabulary.contains(query)) {
+            return Set.of(query);
+        }
+        int allowedEdits = query.length() <= 2 ? 0 : query.length() <= 5 ? 1 : 2;
+        Set<String> expected = new TreeSet<>();
+        for (String term : vocabulary) {
+            if (allowedEdits > 0 && ProductSearchIndex.editDistance(query, term, Integer.MAX_VALUE - 1) <= allowedEdits) {
+                expected.add(term);
+            }
+        }
+        return expected;
+    }
+
+    // A small alphabet, so that many words are within a couple of edits of each other
+    private static String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(4)));
+        }
+        return word.toString();
+    }
+
+    private static Set<String> names(ProductSearchIndex index, String query) {
+        List<SearchHit> hits = index.search(query, Field.NAME, 0, Integer.MAX_VALUE).hits();
+        Set<String> names = new TreeSet<>();
+        hits.forEach(hit -> names.add(hit.product().name()));
+        return names;
+    }
+
+    private static ProductInfoDTO product(Long productId, String name) {
+        return new ProductInfoDTO(productId, name, "", BigDecimal.TEN, BigDecimal.ONE, 1, null, null, 0L, Set.of());
+    }
+}
@@ -0,0 +1,118 @@
+package com.bucott.store.product.search;
+
+import com.bucott.store.product.dto.ProductInfoDTO;
+import com.bucott.store.product.dto.ProductSuggestionDTO;
+import com.bucott.store.product.event.ProductChangedEvent;
+import com.bucott.store.product.event.ProductSoldEvent;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the suggester through its event listeners, which run immediately outside a transaction,
+ * and checks what each prefix suggests after adds, renames, deletes and sales.
+ */
+class ProductSuggesterTest {
+
+    @Test
+    void followsAddsRenamesAndDeletes() {
+        ProductSuggester suggester = new ProductSuggester(null, 10);
+
+        suggester.onProductChanged(ProductChangedEvent.created(product(1L, "iPhone 15 Pro Max"), Set.of()));
+        suggester.onProductChanged(ProductChangedEvent.created(product(2L, "Café Crème Beans"), Set.of()));
+        assertThat(ids(suggester, "pro m")).containsExactly(1L);
+        assertThat(ids(suggester, "IPHONE")).containsExactly(1L);
+        assertThat(ids(suggester, "creme")).containsExactly(2L);
+        assertThat(ids(suggester, "max pro")).isEmpty();
+
+        suggester.onProductChanged(ProductChangedEvent.updated(product(1L, "Galaxy S24 Ultra"), Set.of()));
+        assertThat(ids(suggester, "pro")).isEmpty();
+        assertThat(ids(suggester, "s24 u")).containsExactly(1L);
+        assertThat(suggester.suggest("ultra", 10)).containsExactly(new ProductSuggestionDTO(1L, "Galaxy S24 Ultra"));
+
+        suggester.onProductChanged(ProductChangedEvent.deleted(1L));
+        assertThat(ids(suggester, "galaxy")).isEmpty();
+        assertThat(ids(suggester, "c")).containsExactly(2L);
+        assertThat(ids(suggester, " ")).isEmpty();
+    }
+
+    @Test
+    void ranksBySalesThenByShorterName() {
+        ProductSuggester suggester = new ProductSuggester(null, 10);
+        suggester.onProductChanged(ProductChangedEvent.created(product(1L, "Phone Case Deluxe"), Set.of()));
+        suggester.onProductChanged(ProductChangedEvent.created(product(2L, "Phone Case"), Set.of()));
+        suggester.onProductChanged(ProductChangedEvent.created(product(3L, "Phone Charger"), Set.of()));
+        assertThat(ids(suggester, "phone")).containsExactly(2L, 3L, 1L);
+
+        suggester.onProductSold(new ProductSoldEvent(1L, 2));
+        assertThat(ids(suggester, "phone")).containsExactly(1L, 2L, 3L);
+        assertThat(ids(suggester, "case")).containsExactly(1L, 2L);
+
+        suggester.onProductSold(new ProductSoldEvent(3L, 1));
+        suggester.onProductSold(new ProductSoldEvent(3L, 4));
+        assertThat(ids(suggester, "phone")).containsExactly(3L, 1L, 2L);
+        assertThat(ids(suggester, "phone", 1)).containsExactly(3L);
+    }
+
+    @Test
+    void keepsOnlyTheBestWhenANodeIsFull() {
+        ProductSuggester suggester = new ProductSuggester(null, 2);
+        suggester.onProductChanged(ProductChangedEvent.created(product(1L, "Phone Case Deluxe"), Set.of()));
+        suggester.onProductChanged(ProductChangedEvent.created(product(2L, "Phone Case"), Set.of()));
+        suggester.onProductChanged(ProductChangedEvent.created(product(3L, "Phone Charger"), Set.of()));
+        assertThat(ids(suggester, "phone")).containsExactly(2L, 3L);
+
+        suggester.onProductSold(new ProductSoldEvent(1L, 1));
+        assertThat(ids(suggester, "phone")).containsExactly(1L, 2L);
+
+        // Its place is taken by the best of what the node's subtree still holds
+        suggester.onProductChanged(ProductChangedEvent.deleted(1L));
+        assertThat(ids(suggester, "phone")).containsExactly(2L, 3L);
+        assertThat(ids(suggester, "deluxe")).isEmpty();
+    }
+
+    @Test
+    void handlesSharedSuffixesAndRepeatedWords() {
+        ProductSuggester suggester = new ProductSuggester(null, 10);
+        suggester.onProductChanged(ProductChangedEvent.created(product(1L, "Red Wine Glass"), Set.of()));
+        suggester.onProductChanged(ProductChangedEvent.created(product(2L, "White Wine Glass"), Set.of()));
+        suggester.onProductChanged(ProductChangedEvent.created(product(3L, "Wine Wine Wine"), Set.of()));
+
+        assertThat(ids(suggester, "wine")).containsExactly(1L, 3L, 2L);
+        assertThat(ids(suggester, "wine g")).containsExactly(1L, 2L);
+        assertThat(ids(suggester, "wine wine")).containsExactly(3L);
+        assertThat(ids(suggester, "glass")).containsExactly(1L, 2L);
+
+        suggester.onProductChanged(ProductChangedEvent.deleted(1L));
+        assertThat(ids(suggester, "glass")).containsExactly(2L);
+        assertThat(ids(suggester, "wine")).containsExactly(3L, 2L);
+
+        suggester.onProductChanged(ProductChangedEvent.deleted(3L));
+        assertThat(ids(suggester, "wine")).containsExactly(2L);
+        assertThat(ids(suggester, "wine w")).isEmpty();
+
+        suggester.onProductChanged(ProductChangedEvent.deleted(2L));
+        assertThat(ids(suggester, "w")).isEmpty();
+
+        // The emptied paths were pruned, so adding back under them works as on a fresh trie
+        suggester.onProductChanged(ProductChangedEvent.created(product(4L, "Wine Rack"), Set.of()));
+        assertThat(ids(suggester, "wine")).containsExactly(4L);
+    }
+
+    private static List<Long> ids(ProductSuggester suggester, String prefix) {
+        return ids(suggester, prefix, 10);
+    }
+
+    private static List<Long> ids(ProductSuggester suggester, String prefix, int limit) {
+        return suggester.suggest(prefix, limit).stream().map(ProductSuggestionDTO::productId).toList();
+    }
+
+    private static ProductInfoDTO product(Long productId, String name) {
+        return new ProductInfoDTO(productId, name, "Some description", BigDecimal.TEN, BigDecimal.ONE,
+                1, null, null, 0L, Set.of());
+    }
+}
@@ -0,0 +1,40 @@
+package com.bucott.store.product.service;
+
+import com.bucott.store.common.exception.InvalidInputException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that a cursor decodes to the position it was issued for, for every column it can be
+ * sorted by, and that columns which may hold NULL cannot be paged by cursor at all.
+ */
+class ProductCursorTest {
+
+    @Test
+    void roundTripsEverySortableColumn() {
+        roundTrip(new ProductCursor("productId", Sort.Direction.ASC, 42L, 42L));
+        roundTrip(new ProductCursor("name", Sort.Direction.DESC, "Widget\nwith a newline", 7L));
+        roundTrip(new ProductCursor("currentStock", Sort.Direction.ASC, 0, 3L));
+        roundTrip(new ProductCursor("createdAt", Sort.Direction.DESC, LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123_456_000), 9L));
+        roundTrip(new ProductCursor("updatedAt", Sort.Direction.ASC, LocalDateTime.of(2025, 1, 1, 0, 0), 1L));
+    }
+
+    @Test
+    void rejectsNullableColumns() {
+        ProductCursor.requireSortable("price");
+        assertThatThrownBy(() -> ProductCursor.requireCursorSortable("price")).isInstanceOf(InvalidInputException.class);
+        assertThatThrownBy(() -> ProductCursor.requireCursorSortable("cost")).isInstanceOf(InvalidInputException.class);
+
+        String issuedBeforeTheFix = new ProductCursor("price", Sort.Direction.ASC, null, 5L).encode();
+        assertThatThrownBy(() -> ProductCursor.decode(issuedBeforeTheFix)).isInstanceOf(InvalidInputException.class);
+    }
+
+    private static void roundTrip(ProductCursor cursor) {
+        assertThat(ProductCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+}
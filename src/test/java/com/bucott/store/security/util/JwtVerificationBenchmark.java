@@ -0,0 +1,83 @@
+package com.bucott.store.security.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Per-request cost of authenticating a bearer token, before and after {@link JwtUtil} cached its
+ * key and parser. {@code perRequestBefore} replays what the filter used to do: three full parses
+ * (the filter's {@code extractUsername}, then {@code extractUsername} and {@code isTokenExpired}
+ * in {@code validateToken}), each rebuilding the key and the parser. {@code perRequestAfter} is
+ * the single {@link JwtUtil#verify} the filter makes now.
+ * <p>
+ * Not part of the test suite; run {@link #main} from the IDE, or with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerificationBenchmark {
+    private static final String SECRET_KEY = "benchmark-secret-key-of-at-least-256-bits!";
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(SECRET_KEY);
+        token = jwtUtil.generateToken("benchmark", "benchmark@example.com");
+    }
+
+    @Benchmark
+    public boolean perRequestBefore() {
+        String username = legacyClaims(token).getSubject();
+        String tokenUsername = legacyClaims(token).getSubject();
+        Date expiration = legacyClaims(token).getExpiration();
+        return tokenUsername.equals(username) && !expiration.before(new Date());
+    }
+
+    @Benchmark
+    public boolean perRequestAfter() {
+        Claims claims = jwtUtil.verify(token);
+        return claims.getSubject() != null;
+    }
+
+    // JwtUtil.extractAllClaims as it was: a new key and parser for every parse
+    private static Claims legacyClaims(String token) {
+        Key key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerificationBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}